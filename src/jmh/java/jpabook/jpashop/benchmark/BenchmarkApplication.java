@@ -0,0 +1,38 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트. 웹 서버 없이 임베디드 H2(메모리)로 띄운다.
+ * SQL 로그가 측정값을 망가뜨리지 않도록 로그는 끈다.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String name, String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--jpashop.archive.enabled=false", //측정 중에 주문이 옮겨지지 않게
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn"));
+        args.addAll(Arrays.asList(extraArgs));
+
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.datagen.DataGenerator;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원 가입 처리량(초당 가입 수). 가입마다 처음 보는 이름을 쓴다.
+ * - query: 필터를 끄고 가입할 때마다 이름으로 조회 (jpashop.member-name-filter.enabled=false)
+ * - filter: Bloom filter가 없는 이름이라고 하면 조회를 건너뛴다.
+ *
+ * 회원 members명을 미리 넣어두고 시작한다. 중복 확인은 어느 쪽이든 member.name unique 제약이 마지막으로 막는다.
+ *
+ * ./gradlew jmh -Pinclude=MemberSignupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MemberSignupBenchmark {
+
+    @Param({"query", "filter"})
+    private String duplicateCheck;
+
+    @Param({"100000"})
+    private int members;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private MemberService memberService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("memberSignup",
+                "--jpashop.member-name-filter.enabled=" + duplicateCheck.equals("filter"));
+
+        DataGenerator.Plan plan = new DataGenerator.Plan();
+        plan.setCategories(0);
+        plan.setMembers(members);
+        plan.setItems(0);
+        plan.setOrders(0);
+        context.getBean(DataGenerator.class).generate(plan);
+
+        memberService = context.getBean(MemberService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long join() {
+        Member member = new Member();
+        member.setName("가입회원" + sequence.incrementAndGet()); //DataGenerator 회원 이름은 "회원" + id
+        member.setAddress(new Address("서울", "거리", "12345"));
+        return memberService.join(member);
+    }
+}
@@ -0,0 +1,150 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import jpabook.jpashop.datagen.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 주문 조회 전략(v1~v6) 비교
+ *
+ * 컨트롤러 메서드를 그대로 호출하고 결과를 JSON으로 직렬화하는 데까지를 한 번의 연산으로 잰다.
+ * (조회 쿼리 + 엔티티/DTO 변환 + 직렬화) OSIV처럼 직렬화가 끝날 때까지 읽기 전용 트랜잭션을 열어둔다.
+ *
+ * Throughput(ops/s)과 SampleTime(p50~p99.99)을 같이 재고, -prof gc로 gc.alloc.rate.norm(연산당 할당 바이트)을 본다.
+ * v1, v2는 findAllByString이 최대 1000건으로 잘라서 가져오기 때문에 주문 수가 늘어도 결과 건수는 1000건이다.
+ *
+ * ./gradlew jmh -Pinclude=OrderFetchBenchmark -Pparams=orderCount=10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OrderFetchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int orderCount;
+
+    private ConfigurableApplicationContext context;
+    private OrderApiController orderApi;
+    private OrderSimpleApiController simpleOrderApi;
+    private ObjectMapper objectMapper;
+    private TransactionTemplate readOnlyTx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("orderFetch");
+        context.getBean(DataGenerator.class).generate(plan(orderCount));
+
+        orderApi = context.getBean(OrderApiController.class);
+        simpleOrderApi = context.getBean(OrderSimpleApiController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+    }
+
+    //주문 10건당 회원 1명, 상품 1000개. seed가 고정이라 매번 같은 데이터가 들어간다.
+    static DataGenerator.Plan plan(int orderCount) {
+        DataGenerator.Plan plan = new DataGenerator.Plan();
+        plan.setOrders(orderCount);
+        plan.setMembers(Math.max(1, orderCount / 10));
+        plan.setItems(1000);
+        return plan;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //== 주문 + 주문상품(컬렉션) ==//
+
+    @Benchmark
+    public byte[] ordersV1_entity() {
+        return render(orderApi::ordersV1);
+    }
+
+    @Benchmark
+    public byte[] ordersV2_entityToDto() {
+        return render(orderApi::ordersV2);
+    }
+
+    @Benchmark
+    public byte[] ordersV3_fetchJoin() {
+        return render(orderApi::ordersV3);
+    }
+
+    @Benchmark
+    public byte[] ordersV3_1_batchFetch() {
+        return render(() -> orderApi.ordersV3_page(0, orderCount));
+    }
+
+    @Benchmark
+    public byte[] ordersV4_dtoPerOrder() {
+        return render(() -> orderApi.ordersV4(false));
+    }
+
+    @Benchmark
+    public byte[] ordersV5_dtoInClause() {
+        return render(() -> orderApi.ordersV5(false));
+    }
+
+    @Benchmark
+    public byte[] ordersV6_flatJoin() {
+        return render(() -> orderApi.ordersV6(false));
+    }
+
+    //== 주문 + 회원 + 배송(xToOne) ==//
+
+    @Benchmark
+    public byte[] simpleOrdersV1_entity() {
+        return render(simpleOrderApi::ordersV1);
+    }
+
+    @Benchmark
+    public byte[] simpleOrdersV2_entityToDto() {
+        return render(simpleOrderApi::ordersV2);
+    }
+
+    @Benchmark
+    public byte[] simpleOrdersV3_fetchJoin() {
+        return render(simpleOrderApi::ordersV3);
+    }
+
+    @Benchmark
+    public byte[] simpleOrdersV4_dto() {
+        return render(simpleOrderApi::ordersV4);
+    }
+
+    //결과를 반환해서 JMH가 dead code로 지우지 못하게 한다.
+    private byte[] render(Supplier<?> call) {
+        return readOnlyTx.execute(status -> {
+            try {
+                return objectMapper.writeValueAsBytes(call.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import jpabook.jpashop.datagen.DataGenerator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 주문 DTO 직렬화만 따로 잰다. DTO는 setUp에서 한 번 만들어 두고 writeValueAsBytes만 반복한다.
+ * - reflective: 부트 기본과 같은 설정의 ObjectMapper (BeanSerializer)
+ * - streaming: 애플리케이션 ObjectMapper (OrderJsonModule의 serializer)
+ *
+ * bytes 카운터가 초당 쓴 바이트 수, gc.alloc.rate.norm이 호출당 할당량이다.
+ * 두 방식의 결과가 바이트 단위로 같은지 setUp에서 확인한다.
+ *
+ * ./gradlew jmh -Pinclude=OrderJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderJsonBenchmark {
+
+    @Param({"orders", "orderQuery", "simpleOrders"})
+    private String dto;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    @Param({"reflective", "streaming"})
+    private String serializer;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private Object page;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("orderJson");
+        context.getBean(DataGenerator.class).generate(OrderFetchBenchmark.plan(pageSize));
+
+        OrderApiController orderApi = context.getBean(OrderApiController.class);
+        OrderSimpleApiController simpleOrderApi = context.getBean(OrderSimpleApiController.class);
+        switch (dto) {
+            case "orders":
+                page = load(() -> orderApi.ordersV3_page(0, pageSize));
+                break;
+            case "orderQuery":
+                page = load(() -> orderApi.ordersV6(false));
+                break;
+            case "simpleOrders":
+                page = load(simpleOrderApi::ordersV3);
+                break;
+            default:
+                throw new IllegalArgumentException("dto=" + dto);
+        }
+
+        ObjectMapper streaming = context.getBean(ObjectMapper.class);
+        ObjectMapper reflective = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .registerModule(context.getBean(Hibernate5Module.class))
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (!Arrays.equals(streaming.writeValueAsBytes(page), reflective.writeValueAsBytes(page))) {
+            throw new IllegalStateException("reflective와 streaming의 JSON이 다릅니다. dto=" + dto);
+        }
+        objectMapper = serializer.equals("streaming") ? streaming : reflective;
+    }
+
+    //트랜잭션 안에서 DTO까지 만들어 둔다. 직렬화할 때는 지연 로딩이 일어나지 않는다.
+    private Object load(Supplier<List<?>> query) {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        List<?> all = readOnlyTx.execute(status -> query.get());
+        return new ArrayList<>(all.subList(0, Math.min(pageSize, all.size())));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize(Written written) throws Exception {
+        byte[] bytes = objectMapper.writeValueAsBytes(page);
+        written.bytes += bytes.length;
+        return bytes;
+    }
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.datagen.DataGenerator;
+import jpabook.jpashop.service.BulkOrderRequest;
+import jpabook.jpashop.service.BulkOrderResult;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 생성 처리량(초당 주문 수). 주문 하나에 orders, delivery, order_item, order_summary 4건이 insert 된다.
+ * - none: 시퀀스 옵티마이저 없이 id가 필요할 때마다 시퀀스를 호출 (allocationSize가 1로 바뀐다. 예전 hibernate_sequence 방식)
+ * - pooled: 엔티티별 시퀀스에서 allocationSize(100)만큼 한 번에 받아두고 메모리에서 나눠준다.
+ *
+ * 한 번 호출에 ORDERS건을 orderBulk로 넣는다.(BULK_CHUNK_SIZE와 같아서 트랜잭션 하나, JDBC batch)
+ * 재고가 바닥나서 실패하는 주문이 섞이지 않게 iteration마다 재고를 채운다.
+ *
+ * ./gradlew jmh -Pinclude=OrderPlacementBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(OrderPlacementBenchmark.ORDERS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderPlacementBenchmark {
+
+    static final int ORDERS = 100;
+
+    @Param({"none", "pooled"})
+    private String idOptimizer;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> memberIds;
+    private List<Long> itemIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("orderPlacement",
+                "--spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=" + idOptimizer);
+        context.getBean(DataGenerator.class).generate(OrderFetchBenchmark.plan(10_000));
+
+        orderService = context.getBean(OrderService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        memberIds = jdbcTemplate.queryForList("select member_id from member order by member_id", Long.class);
+        itemIds = jdbcTemplate.queryForList("select item_id from item order by item_id", Long.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        jdbcTemplate.update("update item set stock_quantity = 1000000");
+        context.getBean(EntityManagerFactory.class).getCache().evictAll(); //2차 캐시의 재고도 버린다.
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BulkOrderResult> placeOrders() {
+        List<BulkOrderRequest> requests = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++, next++) {
+            BulkOrderRequest.Line line = new BulkOrderRequest.Line();
+            line.setItemId(itemIds.get(next % itemIds.size()));
+            line.setCount(1);
+
+            BulkOrderRequest request = new BulkOrderRequest();
+            request.setMemberId(memberIds.get(next % memberIds.size()));
+            request.getLines().add(line);
+            requests.add(request);
+        }
+        return orderService.orderBulk(requests);
+    }
+}
@@ -0,0 +1,108 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.datagen.DataGenerator;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 주문 검색 쿼리 만드는 방식 비교
+ * - string: JPQL 문자열 이어 붙이기 (findAllByString)
+ * - criteria: 요청마다 Criteria 새로 만들기 (findAllByCriteria)
+ * - namedQuery: 조합별로 미리 등록한 named query에 파라미터만 바인딩 (findAllByNamedQuery)
+ *
+ * 세 방식 모두 최대 1000건을 가져온다. criteria, namedQuery는 회원 이름을 trigram 인덱스(MemberNameIndex)로 찾고
+ * string은 like로 찾기 때문에 NAME 조건에서는 그 차이도 같이 잡힌다. 쿼리 생성 비용만 보려면 STATUS를 본다.
+ * findAllByString은 이름을 그대로 like에 넣으니까 %를 붙여서 넘긴다.
+ *
+ * ./gradlew jmh -Pinclude=OrderSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderSearchBenchmark {
+
+    private static final String MEMBER_NAME = "회원1234"; //DataGenerator 회원 이름은 "회원" + id
+
+    @Param({"STATUS", "NAME", "STATUS_NAME"})
+    private String filter;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private TransactionTemplate readOnlyTx;
+
+    private OrderSearch search;
+    private OrderSearch likeSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("orderSearch");
+        context.getBean(DataGenerator.class).generate(OrderFetchBenchmark.plan(100_000));
+
+        orderRepository = context.getBean(OrderRepository.class);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+
+        search = search(MEMBER_NAME);
+        likeSearch = search("%" + MEMBER_NAME + "%");
+    }
+
+    private OrderSearch search(String memberName) {
+        OrderSearch orderSearch = new OrderSearch();
+        if (filter.startsWith("STATUS")) {
+            orderSearch.setOrderStatus(OrderStatus.CANCEL);
+        }
+        if (filter.endsWith("NAME")) {
+            orderSearch.setMemberName(memberName);
+        }
+        return orderSearch;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Order> string() {
+        return query(repository -> repository.findAllByString(likeSearch));
+    }
+
+    @Benchmark
+    public List<Order> criteria() {
+        return query(repository -> repository.findAllByCriteria(search));
+    }
+
+    @Benchmark
+    public List<Order> namedQuery() {
+        return query(repository -> repository.findAllByNamedQuery(search));
+    }
+
+    private List<Order> query(Function<OrderRepository, List<Order>> call) {
+        return readOnlyTx.execute(status -> call.apply(orderRepository));
+    }
+}
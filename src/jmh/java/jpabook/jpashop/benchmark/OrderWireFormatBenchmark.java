@@ -0,0 +1,118 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import jpabook.jpashop.datagen.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 주문 목록 응답을 JSON, Smile, CBOR로 인코딩/디코딩하는 시간 비교. ObjectMapper는 실제 컨버터가 쓰는 걸 그대로 쓴다.
+ * 디코딩은 클라이언트가 DTO 클래스 없이 읽는 경우라 JsonNode로 읽는다.
+ * 크기는 setUp에서 한 번 찍는다.(포맷별 바이트 수, JSON 대비 비율)
+ *
+ * ./gradlew jmh -Pinclude=OrderWireFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderWireFormatBenchmark {
+
+    @Param({"orders", "simpleOrders"})
+    private String dto;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private Object page;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("orderWireFormat");
+        context.getBean(DataGenerator.class).generate(OrderFetchBenchmark.plan(pageSize));
+
+        OrderApiController orderApi = context.getBean(OrderApiController.class);
+        OrderSimpleApiController simpleOrderApi = context.getBean(OrderSimpleApiController.class);
+        page = dto.equals("orders")
+                ? load(() -> orderApi.ordersV3_page(0, pageSize))
+                : load(simpleOrderApi::ordersV3);
+
+        ObjectMapper json = context.getBean(ObjectMapper.class);
+        objectMapper = mapper(format);
+        encoded = objectMapper.writeValueAsBytes(page);
+
+        byte[] jsonBytes = json.writeValueAsBytes(page);
+        if (!objectMapper.readTree(encoded).equals(json.readTree(jsonBytes))) {
+            throw new IllegalStateException(format + " 결과가 JSON과 다릅니다.");
+        }
+        System.out.printf("%n[%s, pageSize=%d] %s %d bytes (json %d bytes, %.1f%%)%n",
+                dto, pageSize, format, encoded.length, jsonBytes.length, 100.0 * encoded.length / jsonBytes.length);
+    }
+
+    private ObjectMapper mapper(String format) {
+        switch (format) {
+            case "json":
+                return context.getBean(ObjectMapper.class);
+            case "smile":
+                return context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+            case "cbor":
+                return context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+            default:
+                throw new IllegalArgumentException("format=" + format);
+        }
+    }
+
+    private Object load(Supplier<List<?>> query) {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        List<?> all = readOnlyTx.execute(status -> query.get());
+        return new ArrayList<>(all.subList(0, Math.min(pageSize, all.size())));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public JsonNode decode() throws Exception {
+        return objectMapper.readTree(encoded);
+    }
+}
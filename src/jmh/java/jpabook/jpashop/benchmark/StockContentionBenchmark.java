@@ -0,0 +1,138 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OptimisticLockRetry;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.StockReservationEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 상품 하나에 8개 스레드가 동시에 주문할 때 재고 차감 방식별 처리량(초당 주문 수)
+ * - ENTITY: 상품을 읽어서 Item.removeStock() 후 변경 감지로 update. @Version 충돌이면 OptimisticLockRetry로 다시 시도
+ * - ATOMIC: update item set stock_quantity = stock_quantity - ? where ... and stock_quantity >= ? 한 번
+ * - ENGINE: 메모리에서 예약하고 저널(item_stock_delta)만 insert (StockReservationEngine)
+ *
+ * orders는 성공한 주문, failures는 재시도 횟수를 넘겨서 실패한 주문이다.
+ * iteration이 끝날 때마다 남은 재고가 주문된 수량과 맞는지(oversell, 갱신 손실) 확인하고, 틀리면 벤치마크를 실패시킨다.
+ *
+ * ./gradlew jmh -Pinclude=StockContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StockContentionBenchmark {
+
+    private static final int STOCK = 10_000_000; //iteration 중에 품절되지 않게
+
+    @Param({"ENTITY", "ATOMIC", "ENGINE"})
+    private String stockMode;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private ItemService itemService;
+    private OptimisticLockRetry optimisticLockRetry;
+    private JdbcTemplate jdbcTemplate;
+
+    private Long memberId;
+    private Long itemId;
+    private long orderedBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("stockContention", "--jpashop.stock.mode=" + stockMode);
+        orderService = context.getBean(OrderService.class);
+        itemService = context.getBean(ItemService.class);
+        optimisticLockRetry = context.getBean(OptimisticLockRetry.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Member member = new Member();
+        member.setName("동시주문회원");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        memberId = context.getBean(MemberService.class).join(member);
+
+        Book book = new Book();
+        book.setName("동시주문 JPA");
+        book.setPrice(10000);
+        itemService.saveItem(book);
+        itemId = book.getId();
+    }
+
+    //ENGINE 모드도 엔진 카운터까지 같이 맞춰지도록 상품 수정(updateItem)으로 채운다.
+    @Setup(Level.Iteration)
+    public void restock() {
+        optimisticLockRetry.run(() -> itemService.updateItem(itemId, "동시주문 JPA", 10000, STOCK));
+        context.getBean(StockReservationEngine.class).flush();
+        orderedBefore = ordered();
+    }
+
+    @TearDown(Level.Iteration)
+    public void audit() {
+        context.getBean(StockReservationEngine.class).flush(); //ENGINE 모드면 남은 저널을 item에 반영
+        long expected = STOCK - (ordered() - orderedBefore);
+        Integer actual = jdbcTemplate.queryForObject(
+                "select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        if (actual == null || actual != expected || actual < 0) {
+            throw new IllegalStateException("재고가 주문 수량과 맞지 않습니다. expected=" + expected + ", actual=" + actual);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void order(Counters counters) {
+        try {
+            optimisticLockRetry.execute(() -> orderService.order(memberId, itemId, 1));
+            counters.orders++;
+        } catch (RuntimeException e) { //재시도 횟수 초과, 락 타임아웃
+            counters.failures++;
+        }
+    }
+
+    private long ordered() {
+        Long sum = jdbcTemplate.queryForObject(
+                "select coalesce(sum(count), 0) from order_item where item_id = ?", Long.class, itemId);
+        return sum == null ? 0 : sum;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long orders;
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            orders = 0;
+            failures = 0;
+        }
+    }
+}
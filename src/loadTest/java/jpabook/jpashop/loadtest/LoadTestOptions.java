@@ -0,0 +1,108 @@
+package jpabook.jpashop.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 부하 테스트 설정. key=value 인자로 받는다. --로 시작하는 인자는 스프링 설정으로 그대로 넘긴다.
+ * 예) threads=16 duration=60 skew=3 mix=70:20:10 --jpashop.stock.mode=ATOMIC
+ */
+public class LoadTestOptions {
+
+    int threads = 8;
+    int durationSeconds = 30;
+    int warmupSeconds = 5; //이 시간 동안은 지연시간을 기록하지 않는다. (재고 감사에는 들어간다)
+    int members = 100;
+    int items = 100;
+    int stock = 1000; //상품별 초기 재고. 인기 상품은 중간에 품절되도록 작게 잡는다.
+    int maxCount = 3; //주문 한 건의 수량 1 ~ maxCount
+    double skew = 3.0; //인기 상품 쏠림. 1이면 균등 (DataGenerator와 같은 방식)
+    int orderPercent = 70;
+    int cancelPercent = 20;
+    int searchPercent = 10;
+    long seed = 42;
+    String reportDir = "build/reports/loadtest";
+    final List<String> springArgs = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                options.springArgs.add(arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("인자는 key=value 형식입니다. arg=" + arg);
+            }
+            options.set(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        options.validate();
+        return options;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "threads":
+                threads = Integer.parseInt(value);
+                break;
+            case "duration":
+                durationSeconds = Integer.parseInt(value);
+                break;
+            case "warmup":
+                warmupSeconds = Integer.parseInt(value);
+                break;
+            case "members":
+                members = Integer.parseInt(value);
+                break;
+            case "items":
+                items = Integer.parseInt(value);
+                break;
+            case "stock":
+                stock = Integer.parseInt(value);
+                break;
+            case "maxCount":
+                maxCount = Integer.parseInt(value);
+                break;
+            case "skew":
+                skew = Double.parseDouble(value);
+                break;
+            case "mix": //order:cancel:search 비율(%)
+                String[] parts = value.split(":");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("mix는 order:cancel:search 형식입니다. mix=" + value);
+                }
+                orderPercent = Integer.parseInt(parts[0]);
+                cancelPercent = Integer.parseInt(parts[1]);
+                searchPercent = Integer.parseInt(parts[2]);
+                break;
+            case "seed":
+                seed = Long.parseLong(value);
+                break;
+            case "reportDir":
+                reportDir = value;
+                break;
+            default:
+                throw new IllegalArgumentException("알 수 없는 설정입니다. key=" + key);
+        }
+    }
+
+    private void validate() {
+        if (orderPercent + cancelPercent + searchPercent != 100) {
+            throw new IllegalArgumentException("mix의 합은 100이어야 합니다.");
+        }
+        if (threads < 1 || members < 1 || items < 1 || maxCount < 1 || durationSeconds < 1) {
+            throw new IllegalArgumentException("threads, members, items, maxCount, duration은 1 이상이어야 합니다.");
+        }
+        if (warmupSeconds < 0 || warmupSeconds >= durationSeconds) {
+            throw new IllegalArgumentException("warmup은 0 이상, duration보다 작아야 합니다.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("threads=%d, duration=%ds, warmup=%ds, members=%d, items=%d, stock=%d, maxCount=%d, skew=%.1f, mix=%d:%d:%d, seed=%d",
+                threads, durationSeconds, warmupSeconds, members, items, stock, maxCount, skew,
+                orderPercent, cancelPercent, searchPercent, seed);
+    }
+}
@@ -0,0 +1,352 @@
+package jpabook.jpashop.loadtest;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.NotEnoughStockException;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OptimisticLockRetry;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.StockReservationEngine;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 주문/취소/검색을 N개 스레드로 섞어서 돌리는 부하 테스트. 임베디드 H2(메모리)로 띄운다.
+ * 끝나면 연산별 지연시간 분포(HdrHistogram)와 처리량을 찍고, 상품마다 재고를 감사한다.
+ * - DB: 남은 재고 = 초기 재고 - 주문 상태(ORDER)로 커밋된 주문상품 수량 합. 다르면 갱신 손실(lost update)
+ * - 클라이언트: 성공 응답을 받은 주문/취소로 계산한 수량 합이 DB와 같아야 한다.
+ * 감사에 실패하면 종료 코드 1로 끝난다.
+ *
+ * ./gradlew loadTest -Pthreads=16 -Pduration=60 -Pmix=70:20:10 -PstockMode=ATOMIC
+ */
+public class OrderLoadTest {
+
+    enum Op {ORDER, CANCEL, SEARCH}
+
+    enum Outcome {OK, SOLD_OUT, FAILED}
+
+    private final LoadTestOptions options;
+    private final ConfigurableApplicationContext context;
+    private final OrderService orderService;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Long> memberIds = new ArrayList<>();
+    private final List<String> memberNames = new ArrayList<>();
+    private final List<Long> itemIds = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = start(options);
+        boolean passed;
+        try {
+            passed = new OrderLoadTest(options, context).run();
+        } finally {
+            context.close();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(LoadTestOptions options) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.hikari.maximum-pool-size=" + Math.max(10, options.threads + 2),
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--jpashop.archive.enabled=false", //취소된 주문이 감사 전에 옮겨지지 않게
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn"));
+        args.addAll(options.springArgs);
+
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+
+    OrderLoadTest(LoadTestOptions options, ConfigurableApplicationContext context) {
+        this.options = options;
+        this.context = context;
+        this.orderService = context.getBean(OrderService.class);
+        this.optimisticLockRetry = context.getBean(OptimisticLockRetry.class);
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    boolean run() throws Exception {
+        String stockMode = context.getEnvironment().getProperty("jpashop.stock.mode", "ENTITY");
+        System.out.printf("[loadTest] stockMode=%s, %s%n", stockMode, options);
+        seed();
+
+        long begin = System.nanoTime();
+        long measureFrom = begin + options.warmupSeconds * 1_000_000_000L;
+        long end = begin + options.durationSeconds * 1_000_000_000L;
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int t = 0; t < options.threads; t++) {
+            Worker worker = new Worker(new Random(options.seed + t), measureFrom, end);
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run();
+                return worker;
+            }));
+        }
+        start.countDown();
+
+        List<Worker> workers = new ArrayList<>();
+        for (Future<Worker> future : futures) {
+            workers.add(future.get());
+        }
+        pool.shutdown();
+
+        report(workers, (end - measureFrom) / 1_000_000_000.0);
+        return audit(workers);
+    }
+
+    //회원과 상품은 서비스로 만든다. (회원 이름 인덱스/필터, 상품 ETag도 실제 가입/등록처럼 갱신된다)
+    private void seed() {
+        MemberService memberService = context.getBean(MemberService.class);
+        ItemService itemService = context.getBean(ItemService.class);
+        for (int i = 0; i < options.members; i++) {
+            Member member = new Member();
+            member.setName("부하회원" + i);
+            member.setAddress(new Address("서울", "경기", "123-123"));
+            memberIds.add(memberService.join(member));
+            memberNames.add(member.getName());
+        }
+        for (int i = 0; i < options.items; i++) {
+            Book book = new Book();
+            book.setName("부하상품" + i);
+            book.setPrice(10000 + i);
+            book.setStockQuantity(options.stock);
+            itemService.saveItem(book);
+            itemIds.add(book.getId());
+        }
+    }
+
+    private void report(List<Worker> workers, double seconds) {
+        System.out.printf("[loadTest] %-6s %8s %8s %8s %8s %10s %9s %9s %9s %9s %9s%n",
+                "op", "ops", "ok", "soldOut", "failed", "ops/sec", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        long total = 0;
+        for (Op op : Op.values()) {
+            Histogram histogram = new Histogram(3);
+            long ok = 0, soldOut = 0, failed = 0;
+            for (Worker worker : workers) {
+                histogram.add(worker.latencies[op.ordinal()]);
+                ok += worker.ok[op.ordinal()];
+                soldOut += worker.soldOut[op.ordinal()];
+                failed += worker.failed[op.ordinal()];
+            }
+            long ops = histogram.getTotalCount();
+            total += ops;
+            System.out.printf("[loadTest] %-6s %8d %8d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    op, ops, ok, soldOut, failed, ops / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+            writeDistribution(op, histogram);
+        }
+        System.out.printf("[loadTest] total %.1f ops/sec (측정 구간 %.0fs, 워밍업 제외)%n", total / seconds, seconds);
+    }
+
+    //HdrHistogram 플로터(hdrhistogram.github.io/HdrHistogram/plotFiles.html)에 그대로 넣을 수 있는 .hgrm 파일
+    private void writeDistribution(Op op, Histogram histogram) {
+        File dir = new File(options.reportDir);
+        dir.mkdirs();
+        try (PrintStream out = new PrintStream(new File(dir, op.name().toLowerCase() + ".hgrm"))) {
+            histogram.outputPercentileDistribution(out, 1_000_000.0); //ns -> ms
+        } catch (FileNotFoundException e) {
+            System.out.printf("[loadTest] 분포 파일을 쓰지 못했습니다. %s%n", e.getMessage());
+        }
+    }
+
+    private boolean audit(List<Worker> workers) {
+        context.getBean(StockReservationEngine.class).flush(); //ENGINE 모드면 아직 반영 안 된 저널을 item에 반영 (아니면 아무것도 안 한다)
+
+        Map<Long, Long> clientOrdered = new HashMap<>();
+        for (Worker worker : workers) {
+            worker.ordered.forEach((itemId, count) -> clientOrdered.merge(itemId, count, Long::sum));
+        }
+
+        Map<Long, Long> committed = new HashMap<>();
+        jdbcTemplate.query("select oi.item_id, sum(oi.count) from order_item oi" +
+                        " join orders o on o.order_id = oi.order_id" +
+                        " where o.status = ? group by oi.item_id",
+                (RowCallbackHandler) rs -> committed.put(rs.getLong(1), rs.getLong(2)), OrderStatus.ORDER.name());
+
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("select item_id, stock_quantity from item",
+                (RowCallbackHandler) rs -> stock.put(rs.getLong(1), rs.getInt(2)));
+
+        int lostUpdates = 0, clientMismatches = 0, negatives = 0;
+        for (Long itemId : itemIds) {
+            int actual = stock.get(itemId);
+            long ordered = committed.getOrDefault(itemId, 0L);
+            long expected = options.stock - ordered;
+            if (actual != expected) {
+                lostUpdates++;
+                System.out.printf("[loadTest] 재고 불일치 itemId=%d, expected=%d, actual=%d (committed=%d)%n",
+                        itemId, expected, actual, ordered);
+            }
+            long client = clientOrdered.getOrDefault(itemId, 0L);
+            if (client != ordered) {
+                clientMismatches++;
+                System.out.printf("[loadTest] 응답과 DB 불일치 itemId=%d, client=%d, committed=%d%n", itemId, client, ordered);
+            }
+            if (actual < 0) {
+                negatives++;
+            }
+        }
+
+        boolean passed = lostUpdates == 0 && clientMismatches == 0 && negatives == 0;
+        System.out.printf("[loadTest] 재고 감사 %s. items=%d, lostUpdates=%d, clientMismatches=%d, negativeStock=%d%n",
+                passed ? "통과" : "실패", itemIds.size(), lostUpdates, clientMismatches, negatives);
+        return passed;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * 스레드 하나. 결과는 스레드 안에서만 쌓고 끝난 뒤에 합치기 때문에 측정 중에는 공유하는 값이 없다.
+     */
+    private class Worker {
+
+        private final Random rnd;
+        private final long measureFrom;
+        private final long end;
+
+        private final Histogram[] latencies = new Histogram[Op.values().length];
+        private final long[] ok = new long[Op.values().length];
+        private final long[] soldOut = new long[Op.values().length];
+        private final long[] failed = new long[Op.values().length];
+
+        private final List<long[]> placed = new ArrayList<>(); //취소할 수 있는 내 주문 {orderId, itemId, count}
+        private final Map<Long, Long> ordered = new HashMap<>(); //응답 기준 상품별 주문 수량 (주문 +, 취소 -)
+
+        Worker(Random rnd, long measureFrom, long end) {
+            this.rnd = rnd;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new Histogram(3); //최댓값을 정하지 않고 필요하면 늘어나게
+            }
+        }
+
+        void run() {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                Op op = nextOp();
+                Outcome outcome = Outcome.OK;
+                try {
+                    switch (op) {
+                        case ORDER:
+                            order();
+                            break;
+                        case CANCEL:
+                            cancel();
+                            break;
+                        case SEARCH:
+                            search();
+                            break;
+                    }
+                } catch (NotEnoughStockException e) {
+                    outcome = Outcome.SOLD_OUT;
+                } catch (RuntimeException e) { //재시도 횟수 초과, 락 타임아웃 등. 트랜잭션은 롤백됐다.
+                    outcome = Outcome.FAILED;
+                }
+                if (now >= measureFrom) {
+                    latencies[op.ordinal()].recordValue(System.nanoTime() - now);
+                    record(op, outcome);
+                }
+            }
+        }
+
+        private void record(Op op, Outcome outcome) {
+            switch (outcome) {
+                case OK:
+                    ok[op.ordinal()]++;
+                    break;
+                case SOLD_OUT:
+                    soldOut[op.ordinal()]++;
+                    break;
+                default:
+                    failed[op.ordinal()]++;
+            }
+        }
+
+        private Op nextOp() {
+            int p = rnd.nextInt(100);
+            if (p < options.orderPercent) {
+                return Op.ORDER;
+            }
+            if (p < options.orderPercent + options.cancelPercent) {
+                return placed.isEmpty() ? Op.ORDER : Op.CANCEL;
+            }
+            return Op.SEARCH;
+        }
+
+        private void order() {
+            Long memberId = memberIds.get(rnd.nextInt(memberIds.size()));
+            Long itemId = itemIds.get(skewed(itemIds.size()));
+            int count = 1 + rnd.nextInt(options.maxCount);
+            Long orderId = optimisticLockRetry.execute(() -> orderService.order(memberId, itemId, count));
+            placed.add(new long[]{orderId, itemId, count});
+            ordered.merge(itemId, (long) count, Long::sum);
+        }
+
+        //내가 넣은 주문 중 하나를 취소한다. 실패하면(롤백) 다시 취소할 수 있게 되돌려 둔다.
+        private void cancel() {
+            int index = rnd.nextInt(placed.size());
+            long[] order = placed.get(index);
+            placed.set(index, placed.get(placed.size() - 1));
+            placed.remove(placed.size() - 1);
+            try {
+                optimisticLockRetry.run(() -> orderService.cancelOrder(order[0]));
+            } catch (RuntimeException e) {
+                placed.add(order);
+                throw e;
+            }
+            ordered.merge(order[1], -order[2], Long::sum);
+        }
+
+        private void search() {
+            OrderSearch search = new OrderSearch();
+            search.setMemberName(memberNames.get(rnd.nextInt(memberNames.size())));
+            search.setOrderStatus(OrderStatus.ORDER);
+            orderService.findOrders(search);
+        }
+
+        //앞쪽 상품일수록 자주 골라진다. (DataGenerator.skewed와 같은 분포)
+        private int skewed(int n) {
+            return Math.min(n - 1, (int) (n * Math.pow(rnd.nextDouble(), options.skew)));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package jpabook.jpashop;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -11,6 +12,7 @@ import javax.persistence.EntityManager;
 
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.datagen.enabled", havingValue = "false", matchIfMissing = true) //대량 데이터를 만들 때는 건너뛴다.(DataGeneratorRunner)
 public class InitDb {
 
     private final InitService initService;
@@ -46,6 +48,7 @@ public class InitDb {
             Delivery delivery = createDelivery(member);
             Order order =  Order.createOrder(member,delivery,orderItem1,orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.create(order));
         }
 
         public void dbInit2() {
@@ -66,6 +69,7 @@ public class InitDb {
             Delivery delivery = createDelivery(member);
             Order order =  Order.createOrder(member,delivery,orderItem1,orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.create(order));
         }
 
         private Member createMember(String name,String city,String street,String zipcode) {
@@ -0,0 +1,75 @@
+package jpabook.jpashop.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.stream.Collectors.toList;
+
+//2차 캐시 hit/miss 통계 (hibernate.generate_statistics=true 일 때만 값이 쌓인다)
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsApiController {
+
+    private final EntityManagerFactory emf;
+
+    @GetMapping("/internal/cache/stats")
+    public CacheStatsDto cacheStats() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        List<RegionStatsDto> regions = Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .map(name -> {
+                    CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+                    return region == null ? null : new RegionStatsDto(name, region);
+                })
+                .filter(Objects::nonNull)
+                .collect(toList());
+
+        return new CacheStatsDto(
+                statistics.isStatisticsEnabled(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                regions);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CacheStatsDto {
+        private boolean enabled;
+        private long entityHitCount;
+        private long entityMissCount;
+        private long queryHitCount;
+        private long queryMissCount;
+        private List<RegionStatsDto> regions;
+    }
+
+    @Data
+    static class RegionStatsDto {
+        private String region;
+        private long hitCount;
+        private long missCount;
+        private long putCount;
+        private double hitRatio;
+
+        RegionStatsDto(String region, CacheRegionStatistics statistics) {
+            this.region = region;
+            hitCount = statistics.getHitCount();
+            missCount = statistics.getMissCount();
+            putCount = statistics.getPutCount();
+            long total = hitCount + missCount;
+            hitRatio = total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+}
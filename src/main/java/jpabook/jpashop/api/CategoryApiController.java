@@ -0,0 +1,88 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.CategoryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+
+    private final CategoryService categoryService;
+
+    @PostMapping("/api/v1/categories")
+    public CreateCategoryResponse saveCategory(@RequestBody @Valid CreateCategoryRequest request) {
+        Long id = categoryService.create(request.getName(), request.getParentId());
+        return new CreateCategoryResponse(id);
+    }
+
+    @PostMapping("/api/v1/categories/{categoryId}/items/{itemId}")
+    public void addItem(@PathVariable("categoryId") Long categoryId, @PathVariable("itemId") Long itemId) {
+        categoryService.addItem(categoryId, itemId);
+    }
+
+    //하위 카테고리까지 포함한 상품 목록. 트리 깊이와 상관없이 쿼리 한 번이다.
+    //다음 페이지가 있는지는 limit보다 한 건 더 읽어서 본다.(count 쿼리 없이)
+    //http://localhost:8080/api/v1/categories/1/items?offset=0&limit=20
+    @GetMapping("/api/v1/categories/{categoryId}/items")
+    public ItemPage subtreeItems(@PathVariable("categoryId") Long categoryId,
+                                 @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                 @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        List<Item> items = categoryService.findItemsInSubtree(categoryId, offset, limit + 1);
+        boolean hasNext = items.size() > limit;
+        List<CategoryItemDto> result = items.stream()
+                .limit(limit)
+                .map(CategoryItemDto::new)
+                .collect(toList());
+        return new ItemPage(result, hasNext);
+    }
+
+    @Data
+    static class CreateCategoryRequest {
+        @NotEmpty
+        private String name;
+        private Long parentId; //없으면 최상위
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateCategoryResponse {
+        private Long id;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemPage {
+        private List<CategoryItemDto> data;
+        private boolean hasNext;
+    }
+
+    @Data
+    static class CategoryItemDto {
+        private Long itemId;
+        private String name;
+        private int price;
+        private int stockQuantity;
+
+        CategoryItemDto(Item item) {
+            itemId = item.getId();
+            name = item.getName();
+            price = item.getPrice();
+            stockQuantity = item.getStockQuantity();
+        }
+    }
+}
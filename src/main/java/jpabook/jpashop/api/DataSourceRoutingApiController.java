@@ -0,0 +1,30 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.datasource.DataSourceRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+//primary/레플리카별로 꺼낸 커넥션 수와 풀 상태. 레플리카가 설정돼 있을 때만 있다.
+//http://localhost:8080/internal/metrics/datasource
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.datasource.replicas")
+public class DataSourceRoutingApiController {
+
+    private final DataSourceRouter dataSourceRouter;
+
+    @GetMapping("/internal/metrics/datasource")
+    public List<DataSourceRouter.RouteStats> routes() {
+        return dataSourceRouter.getStats();
+    }
+
+    @DeleteMapping("/internal/metrics/datasource")
+    public void resetRoutes() {
+        dataSourceRouter.reset();
+    }
+}
@@ -0,0 +1,211 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.monitoring.HibernateStatsSnapshot;
+import jpabook.jpashop.monitoring.HibernateStatsWindow;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+//하이버네이트 통계를 윈도우(jpashop.hibernate-stats.window-ms) 단위 증가분으로 보여준다.
+//window=last는 마지막으로 닫힌 윈도우, window=current는 지금 진행 중인 윈도우
+//http://localhost:8080/internal/metrics/hibernate?window=current&limit=10
+@RestController
+@RequiredArgsConstructor
+public class HibernateStatsApiController {
+
+    private final HibernateStatsWindow hibernateStatsWindow;
+
+    @GetMapping("/internal/metrics/hibernate")
+    public HibernateStatsDto hibernateStats(@RequestParam(value = "window", defaultValue = "last") String window,
+                                            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        HibernateStatsSnapshot snapshot;
+        switch (window) {
+            case "last":
+                snapshot = hibernateStatsWindow.last();
+                break;
+            case "current":
+                snapshot = hibernateStatsWindow.current();
+                break;
+            default:
+                throw new IllegalArgumentException("window는 last, current 중 하나입니다. window=" + window);
+        }
+        return new HibernateStatsDto(hibernateStatsWindow.isEnabled(), hibernateStatsWindow.getBatchFetchSize(), snapshot, limit);
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    @Data
+    static class HibernateStatsDto {
+        private boolean enabled;
+        private int batchFetchSize;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private long sessions;
+        private long transactions;
+        private long flushes;
+        private long statements;
+        private long optimisticFailures;
+        private long entityLoads;
+        private long entityFetches;
+        private long collectionLoads;
+        private long collectionFetches;
+        private double collectionLoadsPerFetch;
+        private long queryExecutions;
+        private long secondLevelCacheHits;
+        private long secondLevelCacheMisses;
+        private long secondLevelCachePuts;
+        private double secondLevelCacheHitRatio;
+        private long queryCacheHits;
+        private long queryCacheMisses;
+        private double queryCacheHitRatio;
+        private List<EntityDto> entities;
+        private List<CollectionDto> collections;
+        private List<QueryDto> queries; //전체 실행 시간이 긴 순서로 limit개
+        private List<RegionDto> regions;
+
+        HibernateStatsDto(boolean enabled, int batchFetchSize, HibernateStatsSnapshot s, int limit) {
+            this.enabled = enabled;
+            this.batchFetchSize = batchFetchSize;
+            from = s.getFrom();
+            to = s.getTo();
+            sessions = s.getSessions();
+            transactions = s.getTransactions();
+            flushes = s.getFlushes();
+            statements = s.getStatements();
+            optimisticFailures = s.getOptimisticFailures();
+            entityLoads = s.getEntityLoads();
+            entityFetches = s.getEntityFetches();
+            collectionLoads = s.getCollectionLoads();
+            collectionFetches = s.getCollectionFetches();
+            collectionLoadsPerFetch = ratio(collectionLoads, collectionFetches);
+            queryExecutions = s.getQueryExecutions();
+            secondLevelCacheHits = s.getSecondLevelCacheHits();
+            secondLevelCacheMisses = s.getSecondLevelCacheMisses();
+            secondLevelCachePuts = s.getSecondLevelCachePuts();
+            secondLevelCacheHitRatio = ratio(secondLevelCacheHits, secondLevelCacheHits + secondLevelCacheMisses);
+            queryCacheHits = s.getQueryCacheHits();
+            queryCacheMisses = s.getQueryCacheMisses();
+            queryCacheHitRatio = ratio(queryCacheHits, queryCacheHits + queryCacheMisses);
+
+            entities = s.getEntities().entrySet().stream()
+                    .map(e -> new EntityDto(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingLong(EntityDto::getLoads).reversed())
+                    .collect(toList());
+            collections = s.getCollections().entrySet().stream()
+                    .map(e -> new CollectionDto(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingLong(CollectionDto::getLoads).reversed())
+                    .collect(toList());
+            queries = s.getQueries().entrySet().stream()
+                    .map(e -> new QueryDto(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingLong(QueryDto::getTotalTimeMillis).reversed())
+                    .limit(limit)
+                    .collect(toList());
+            regions = s.getRegions().entrySet().stream()
+                    .map(e -> new RegionDto(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparing(RegionDto::getRegion))
+                    .collect(toList());
+        }
+    }
+
+    @Data
+    static class EntityDto {
+        private String entity;
+        private long loads;
+        private long fetches;
+        //따로 나간 조회(fetch) 한 번에 로딩된 엔티티 수. batchFetchSize에 가까울수록 배치 페칭이 잘 되고 있는 것이고,
+        //1에 가까우면 N+1이다. 쿼리로 로딩된 것도 loads에 들어가니까 어림값이다.
+        private double loadsPerFetch;
+        private long inserts;
+        private long updates;
+        private long deletes;
+        private long cacheHits;
+        private long cacheMisses;
+        private double cacheHitRatio;
+
+        EntityDto(String entity, HibernateStatsSnapshot.EntityCounts counts) {
+            this.entity = entity;
+            loads = counts.getLoads();
+            fetches = counts.getFetches();
+            loadsPerFetch = ratio(loads, fetches);
+            inserts = counts.getInserts();
+            updates = counts.getUpdates();
+            deletes = counts.getDeletes();
+            cacheHits = counts.getCacheHits();
+            cacheMisses = counts.getCacheMisses();
+            cacheHitRatio = ratio(cacheHits, cacheHits + cacheMisses);
+        }
+    }
+
+    @Data
+    static class CollectionDto {
+        private String role;
+        private long loads;
+        private long fetches;
+        private double loadsPerFetch; //초기화 한 번에 같이 로딩된 컬렉션 수 (batchFetchSize까지)
+        private long recreates;
+        private long updates;
+        private long removes;
+
+        CollectionDto(String role, HibernateStatsSnapshot.CollectionCounts counts) {
+            this.role = role;
+            loads = counts.getLoads();
+            fetches = counts.getFetches();
+            loadsPerFetch = ratio(loads, fetches);
+            recreates = counts.getRecreates();
+            updates = counts.getUpdates();
+            removes = counts.getRemoves();
+        }
+    }
+
+    @Data
+    static class QueryDto {
+        private String query;
+        private long executions;
+        private long totalTimeMillis;
+        private double avgTimeMillis;
+        private long maxTimeMillis; //애플리케이션 시작부터의 최댓값
+        private long rows;
+        private double avgRows;
+        private long cacheHits;
+        private long cacheMisses;
+
+        QueryDto(String query, HibernateStatsSnapshot.QueryCounts counts) {
+            this.query = query;
+            executions = counts.getExecutions();
+            totalTimeMillis = counts.getTotalTimeMillis();
+            avgTimeMillis = ratio(totalTimeMillis, executions);
+            maxTimeMillis = counts.getMaxTimeMillis();
+            rows = counts.getRows();
+            avgRows = ratio(rows, executions);
+            cacheHits = counts.getCacheHits();
+            cacheMisses = counts.getCacheMisses();
+        }
+    }
+
+    @Data
+    static class RegionDto {
+        private String region;
+        private long hits;
+        private long misses;
+        private long puts;
+        private double hitRatio;
+
+        RegionDto(String region, HibernateStatsSnapshot.RegionCounts counts) {
+            this.region = region;
+            hits = counts.getHits();
+            misses = counts.getMisses();
+            puts = counts.getPuts();
+            hitRatio = ratio(hits, hits + misses);
+        }
+    }
+}
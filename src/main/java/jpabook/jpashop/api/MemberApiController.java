@@ -1,12 +1,14 @@
 package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.AggregateVersions;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
@@ -20,6 +22,7 @@ import java.util.stream.Collectors;
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final AggregateVersions aggregateVersions;
 
 
     //이렇게 직접 Entity를 반환하는 방법은 좋은 방법이 아니다.  더하여 이렇게 Array를 그대로 반환하면 스팩을 확장 할 수도 없다.
@@ -28,8 +31,12 @@ public class MemberApiController {
         return memberService.findMembers();
     }
 
+    //회원이 바뀌지 않았으면 If-None-Match만 보고 바로 304. DB도 직렬화도 안 거친다.
     @GetMapping("/api/v2/members")
-    public Result membersV2() {
+    public Result membersV2(WebRequest webRequest) {
+        if (webRequest.checkNotModified(aggregateVersions.etag("members-v2", AggregateVersions.Aggregate.MEMBER))) {
+            return null;
+        }
         List<Member> findMembers = memberService.findMembers();
         List<MemberDto> collect = findMembers.stream()
                 .map(m -> new MemberDto(m.getName()))
@@ -1,25 +1,42 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.BulkCancelResult;
+import jpabook.jpashop.service.BulkOrderRequest;
+import jpabook.jpashop.service.BulkOrderResult;
+import jpabook.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.jaxb.SpringDataJaxb;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.*;
@@ -28,10 +45,16 @@ import static java.util.stream.Collectors.*;
 @RequiredArgsConstructor
 public class OrderApiController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final OrderRepository orderRepository;
 
     private final OrderQueryRepository orderQueryRepository;
 
+    private final ObjectMapper objectMapper;
+
+    private final OrderService orderService;
+
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
 
@@ -79,29 +102,147 @@ public class OrderApiController {
         return result;
     }
 
+    //키셋(커서) 페이징. 응답의 next를 다음 요청의 cursor로 넘기면 된다. 마지막 페이지면 next는 null
+    //http://localhost:8080/api/v3.2/orders?limit=100&cursor=...
+    @GetMapping("/api/v3.2/orders")
+    public CursorResult<List<OrderDto>> ordersV3_cursor(@RequestParam(value = "cursor", required = false) String cursor,
+                                                        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        limit = pageSize(limit);
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(decodeCursor(cursor), limit);
+
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+
+        return new CursorResult<>(result, nextCursor(result, limit, OrderDto::getOrderDate, OrderDto::getOrderId));
+    }
+
+    //v4 ~ v6는 includeArchived=true면 보관된 주문(orders_archive)도 뒤에 붙여준다.
     @GetMapping("/api/v4/orders")
-    public List<OrderQueryDto> ordersV4() {
+    public List<OrderQueryDto> ordersV4(@RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
 
-        return orderQueryRepository.findOrderQueryDtos();
+        return withArchived(orderQueryRepository.findOrderQueryDtos(), includeArchived);
 
     }
 
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5() {
-        return orderQueryRepository.findAllByDto_optimization();
+    public List<OrderQueryDto> ordersV5(@RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
+        return withArchived(orderQueryRepository.findAllByDto_optimization(), includeArchived);
+    }
+
+    @GetMapping("/api/v4.1/orders")
+    public CursorResult<List<OrderQueryDto>> ordersV4_cursor(@RequestParam(value = "cursor", required = false) String cursor,
+                                                             @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        limit = pageSize(limit);
+        List<OrderQueryDto> result = orderQueryRepository.findOrderQueryDtos(decodeCursor(cursor), limit);
+        return new CursorResult<>(result, nextCursor(result, limit, OrderQueryDto::getOrderDate, OrderQueryDto::getOrderId));
     }
 
+    @GetMapping("/api/v5.1/orders")
+    public CursorResult<List<OrderQueryDto>> ordersV5_cursor(@RequestParam(value = "cursor", required = false) String cursor,
+                                                             @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        limit = pageSize(limit);
+        List<OrderQueryDto> result = orderQueryRepository.findAllByDto_optimization(decodeCursor(cursor), limit);
+        return new CursorResult<>(result, nextCursor(result, limit, OrderQueryDto::getOrderDate, OrderQueryDto::getOrderId));
+    }
+
+    //커서 페이징의 페이지 크기는 1 ~ MAX_PAGE_SIZE로 맞춘다. 0이면 다음 커서를 만들 수 없고, 너무 크면 페이징하는 의미가 없다.
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    //클라이언트가 보낸 커서가 깨져 있으면 500이 아니라 400
+    private static OrderCursor decodeCursor(String cursor) {
+        try {
+            return OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    //페이지가 꽉 찼으면 마지막 주문 뒤부터 읽는 커서, 아니면 마지막 페이지라 null
+    private static <T> String nextCursor(List<T> result, int limit,
+                                         Function<T, LocalDateTime> orderDate, Function<T, Long> orderId) {
+        if (result.size() < limit) {
+            return null;
+        }
+        T last = result.get(result.size() - 1);
+        return new OrderCursor(orderDate.apply(last), orderId.apply(last)).encode();
+    }
+
+    //flat 조인 한 번 + 주문 순서대로 한 번에 묶기(FlatTreeAssembler). Map 없이 쿼리 순서(o.id) 그대로 나간다.
     @GetMapping("/api/v6/orders")
-    public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(),
-                                o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
-                        e.getKey().getAddress(), e.getValue()))
-                .collect(toList());
+    public List<OrderQueryDto> ordersV6(@RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
+        return withArchived(orderQueryRepository.findAllByDto_flatTree(), includeArchived);
+    }
+
+    private List<OrderQueryDto> withArchived(List<OrderQueryDto> orders, boolean includeArchived) {
+        if (!includeArchived) {
+            return orders;
+        }
+        List<OrderQueryDto> result = new ArrayList<>(orders);
+        result.addAll(orderQueryRepository.findArchivedByDto());
+        return result;
+    }
+
+    //전체 주문 내보내기. 주문 하나를 JSON 한 줄로 바로바로 써 내려간다.(NDJSON)
+    //결과를 List로 모으지 않기 때문에 주문이 몇 백만 건이어도 힙 사용량은 일정하다.
+    //커서로 읽는 동안 커넥션을 잡고 있어야 하니 요청 전체를 읽기 전용 트랜잭션으로 묶는다.
+    @GetMapping(value = "/api/v6/orders/export", produces = "application/x-ndjson")
+    @Transactional(readOnly = true)
+    public void exportOrders(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+
+        orderQueryRepository.streamAllByDto_flat(o -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(o));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    //대량 주문. 일부가 실패해도 전체가 실패하지 않고, 주문마다 성공/실패를 돌려준다.
+    @PostMapping("/api/v1/orders/bulk")
+    public BulkOrderResponse orderBulk(@RequestBody CreateBulkOrderRequest request) {
+        List<BulkOrderResult> results = orderService.orderBulk(request.getOrders());
+        int successCount = (int) results.stream().filter(BulkOrderResult::isSuccess).count();
+        return new BulkOrderResponse(successCount, results.size() - successCount, results);
+    }
+
+    //대량 주문 취소. 배송완료/이미 취소된 주문은 건너뛰고 skippedOrderIds로 알려준다.
+    @PostMapping("/api/v1/orders/cancel")
+    public BulkCancelResult cancelOrders(@RequestBody CancelOrdersRequest request) {
+        return orderService.cancelOrders(request.getOrderIds());
+    }
+
+    @Data
+    static class CancelOrdersRequest {
+        private List<Long> orderIds = new ArrayList<>();
+    }
+
+    @Data
+    static class CreateBulkOrderRequest {
+        private List<BulkOrderRequest> orders = new ArrayList<>();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BulkOrderResponse {
+        private int successCount;
+        private int failureCount;
+        private List<BulkOrderResult> results;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T> {
+        private T data;
+        private String next;
     }
 
     @Data
@@ -112,6 +253,8 @@ public class OrderApiController {
         private LocalDateTime orderDate;
         private OrderStatus orderStatus;
         private Address address;
+        private int totalPrice; //주문금액 (orders 컬럼이라 주문상품을 읽지 않는다)
+        private int itemCount; //주문수량
         private List<OrderItemDto> orderItems;
 
 
@@ -121,6 +264,8 @@ public class OrderApiController {
             orderDate= order.getOrderDate();
             orderStatus =order.getStatus();
             address = order.getDelivery().getAddress();
+            totalPrice = order.getTotalPrice();
+            itemCount = order.getItemCount();
 
 //            // 이렇게 해주지 않으면 이 orderItems가 Entity라서 값이 null로 나온다.
 //            //근데 이렇게 해주는건 또 Entity를 그대로 쓰는 것이기 때문에 dto를 사용하는 것으로 바꿔야한다.
@@ -0,0 +1,20 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.ArchiveResult;
+import jpabook.jpashop.service.OrderArchiveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+//주문 보관을 스케줄을 기다리지 않고 바로 돌린다.
+@RestController
+@RequiredArgsConstructor
+public class OrderArchiveApiController {
+
+    private final OrderArchiveService orderArchiveService;
+
+    @PostMapping("/internal/order-archive/run")
+    public ArchiveResult archive() {
+        return orderArchiveService.archive();
+    }
+}
@@ -0,0 +1,216 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 주문 목록 DTO 전용 serializer. 리플렉션 기반 BeanSerializer 대신 필드를 JsonGenerator에 바로 쓴다.
+ * Module 빈이라 스프링 부트가 ObjectMapper에 알아서 등록한다.
+ *
+ * 필드 이름과 순서는 BeanSerializer가 만들던 것과 같다. DTO에 필드를 추가하면 여기도 같이 추가해야 한다.
+ * 날짜는 ObjectMapper 설정(부트 기본은 ISO 문자열)을 따르도록 provider에 맡긴다.
+ */
+@Component
+public class OrderJsonModule extends SimpleModule {
+
+    private static final SerializableString ORDER_ID = new SerializedString("orderId");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString ORDER_DATE = new SerializedString("orderDate");
+    private static final SerializableString ORDER_STATUS = new SerializedString("orderStatus");
+    private static final SerializableString ADDRESS = new SerializedString("address");
+    private static final SerializableString CITY = new SerializedString("city");
+    private static final SerializableString STREET = new SerializedString("street");
+    private static final SerializableString ZIPCODE = new SerializedString("zipcode");
+    private static final SerializableString TOTAL_PRICE = new SerializedString("totalPrice");
+    private static final SerializableString ITEM_COUNT = new SerializedString("itemCount");
+    private static final SerializableString ORDER_ITEMS = new SerializedString("orderItems");
+    private static final SerializableString ITEM_NAME = new SerializedString("itemName");
+    private static final SerializableString ORDER_PRICE = new SerializedString("orderPrice");
+    private static final SerializableString COUNT = new SerializedString("count");
+
+    public OrderJsonModule() {
+        super("OrderJsonModule");
+        addSerializer(new OrderDtoSerializer());
+        addSerializer(new OrderItemDtoSerializer());
+        addSerializer(new SimpleOrderDtoSerializer());
+        addSerializer(new OrderQueryDtoSerializer());
+        addSerializer(new OrderItemQueryDtoSerializer());
+        addSerializer(new OrderSimpleQueryDtoSerializer());
+    }
+
+    //== v2, v3 ==//
+
+    static class OrderDtoSerializer extends StdSerializer<OrderApiController.OrderDto> {
+
+        private final OrderItemDtoSerializer itemSerializer = new OrderItemDtoSerializer();
+
+        OrderDtoSerializer() {
+            super(OrderApiController.OrderDto.class);
+        }
+
+        @Override
+        public void serialize(OrderApiController.OrderDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            writeHeader(gen, provider, dto.getOrderId(), dto.getName(), dto.getOrderDate(), dto.getOrderStatus(), dto.getAddress());
+            gen.writeFieldName(TOTAL_PRICE);
+            gen.writeNumber(dto.getTotalPrice());
+            gen.writeFieldName(ITEM_COUNT);
+            gen.writeNumber(dto.getItemCount());
+            gen.writeFieldName(ORDER_ITEMS);
+            writeList(gen, provider, dto.getOrderItems(), itemSerializer);
+            gen.writeEndObject();
+        }
+    }
+
+    static class OrderItemDtoSerializer extends StdSerializer<OrderApiController.OrderItemDto> {
+
+        OrderItemDtoSerializer() {
+            super(OrderApiController.OrderItemDto.class);
+        }
+
+        @Override
+        public void serialize(OrderApiController.OrderItemDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            writeItem(gen, dto.getItemName(), dto.getOrderPrice(), dto.getCount());
+            gen.writeEndObject();
+        }
+    }
+
+    static class SimpleOrderDtoSerializer extends StdSerializer<OrderSimpleApiController.SimpleOrderDto> {
+
+        SimpleOrderDtoSerializer() {
+            super(OrderSimpleApiController.SimpleOrderDto.class);
+        }
+
+        @Override
+        public void serialize(OrderSimpleApiController.SimpleOrderDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            writeHeader(gen, provider, dto.getOrderId(), dto.getName(), dto.getOrderDate(), dto.getOrderStatus(), dto.getAddress());
+            gen.writeFieldName(TOTAL_PRICE);
+            gen.writeNumber(dto.getTotalPrice());
+            gen.writeFieldName(ITEM_COUNT);
+            gen.writeNumber(dto.getItemCount());
+            gen.writeEndObject();
+        }
+    }
+
+    //== v4 ~ v6 ==//
+
+    static class OrderQueryDtoSerializer extends StdSerializer<OrderQueryDto> {
+
+        private final OrderItemQueryDtoSerializer itemSerializer = new OrderItemQueryDtoSerializer();
+
+        OrderQueryDtoSerializer() {
+            super(OrderQueryDto.class);
+        }
+
+        @Override
+        public void serialize(OrderQueryDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            writeHeader(gen, provider, dto.getOrderId(), dto.getName(), dto.getOrderDate(), dto.getOrderStatus(), dto.getAddress());
+            gen.writeFieldName(ORDER_ITEMS);
+            writeList(gen, provider, dto.getOrderItems(), itemSerializer);
+            gen.writeEndObject();
+        }
+    }
+
+    //orderId는 @JsonIgnore라 쓰지 않는다.
+    static class OrderItemQueryDtoSerializer extends StdSerializer<OrderItemQueryDto> {
+
+        OrderItemQueryDtoSerializer() {
+            super(OrderItemQueryDto.class);
+        }
+
+        @Override
+        public void serialize(OrderItemQueryDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            writeItem(gen, dto.getItemName(), dto.getOrderPrice(), dto.getCount());
+            gen.writeEndObject();
+        }
+    }
+
+    static class OrderSimpleQueryDtoSerializer extends StdSerializer<OrderSimpleQueryDto> {
+
+        OrderSimpleQueryDtoSerializer() {
+            super(OrderSimpleQueryDto.class);
+        }
+
+        @Override
+        public void serialize(OrderSimpleQueryDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            writeHeader(gen, provider, dto.getOrderId(), dto.getName(), dto.getOrderDate(), dto.getOrderStatus(), dto.getAddress());
+            gen.writeEndObject();
+        }
+    }
+
+    //== 공통 필드 ==//
+
+    private static void writeHeader(JsonGenerator gen, SerializerProvider provider, Long orderId, String name,
+                                    LocalDateTime orderDate, OrderStatus orderStatus, Address address) throws IOException {
+        gen.writeFieldName(ORDER_ID);
+        if (orderId == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(orderId);
+        }
+        gen.writeFieldName(NAME);
+        gen.writeString(name);
+        gen.writeFieldName(ORDER_DATE);
+        provider.defaultSerializeValue(orderDate, gen);
+        gen.writeFieldName(ORDER_STATUS);
+        gen.writeString(orderStatus == null ? null : orderStatus.name());
+        gen.writeFieldName(ADDRESS);
+        if (address == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartObject(address);
+            gen.writeFieldName(CITY);
+            gen.writeString(address.getCity());
+            gen.writeFieldName(STREET);
+            gen.writeString(address.getStreet());
+            gen.writeFieldName(ZIPCODE);
+            gen.writeString(address.getZipcode());
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeItem(JsonGenerator gen, String itemName, int orderPrice, int count) throws IOException {
+        gen.writeFieldName(ITEM_NAME);
+        gen.writeString(itemName);
+        gen.writeFieldName(ORDER_PRICE);
+        gen.writeNumber(orderPrice);
+        gen.writeFieldName(COUNT);
+        gen.writeNumber(count);
+    }
+
+    private static <T> void writeList(JsonGenerator gen, SerializerProvider provider, List<T> list,
+                                      StdSerializer<T> serializer) throws IOException {
+        if (list == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray(list.size());
+        for (T element : list) {
+            if (element == null) {
+                gen.writeNull();
+            } else {
+                serializer.serialize(element, gen, provider);
+            }
+        }
+        gen.writeEndArray();
+    }
+}
@@ -8,9 +8,12 @@ import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
@@ -26,10 +29,14 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderSimpleApiController {
 
+    private static final int MAX_LIMIT = 1000; //v5 한 번에 돌려주는 최대 건수
+
     private final OrderRepository orderRepository;
 
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
 
+    private final OrderSummaryRepository orderSummaryRepository;
+
     // orders를 가져온다고 이렇게 해놓고 돌리면 무한 루프에 빠진다.
     // 그 이유는, 먼저 Order에가면 Member가 존재한다. 그러면 Member를 가져오기위해 Member에 가는데, 또 거기에는 orders가 존재한다.
     // 그래서 또 Member로 오는데, 이렇게 무한루프에 빠지는 것이다. 즉, 양방향 연관관계에 있기때문에 발생하는 것이다. 이것을 막으려면??
@@ -99,6 +106,15 @@ public class OrderSimpleApiController {
         return orderSimpleQueryRepository.findOrderDtos();
     }
 
+    // v4와 같은 결과를 조인 없이 order_summary 테이블 하나에서 읽는다.
+    // 주문/취소할 때 같은 트랜잭션에서 요약을 갱신해두기 때문에 조회 시점에는 원본과 같다.
+    //http://localhost:8080/api/v5/simple-orders?orderStatus=ORDER&memberName=user&limit=100
+    @GetMapping("/api/v5/simple-orders")
+    public List<OrderSimpleQueryDto> ordersV5(@ModelAttribute OrderSearch orderSearch,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return orderSummaryRepository.search(orderSearch, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
     @Data
     static class SimpleOrderDto {
         private Long orderId;
@@ -106,6 +122,8 @@ public class OrderSimpleApiController {
         private LocalDateTime orderDate;
         private OrderStatus orderStatus;
         private Address address;
+        private int totalPrice; //주문금액 (orders 컬럼이라 주문상품을 읽지 않는다)
+        private int itemCount; //주문수량
 
         public SimpleOrderDto(Order order) {
             orderId = order.getId();
@@ -113,6 +131,8 @@ public class OrderSimpleApiController {
             orderDate = order.getOrderDate();
             orderStatus = order.getStatus();
             address = order.getMember().getAddress();
+            totalPrice = order.getTotalPrice();
+            itemCount = order.getItemCount();
         }
     }
 
@@ -0,0 +1,37 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryConsistency;
+import jpabook.jpashop.service.OrderSummaryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+//주문 요약(order_summary) 재생성과 원본과의 정합성 확인
+@RestController
+@RequiredArgsConstructor
+public class OrderSummaryApiController {
+
+    private final OrderSummaryService orderSummaryService;
+
+    @PostMapping("/internal/order-summary/rebuild")
+    public RebuildResponse rebuild() {
+        long begin = System.currentTimeMillis();
+        int rows = orderSummaryService.rebuild();
+        return new RebuildResponse(rows, System.currentTimeMillis() - begin);
+    }
+
+    @GetMapping("/internal/order-summary/consistency")
+    public OrderSummaryConsistency consistency() {
+        return orderSummaryService.checkConsistency();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RebuildResponse {
+        private int rows; //고친 row 수
+        private long elapsedMillis;
+    }
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.monitoring.EndpointSqlStats;
+import jpabook.jpashop.monitoring.SqlMetricsRegistry;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+//엔드포인트별 SQL 실행 횟수/시간/읽은 row 수. 요청당 SQL이 많은 순서(sort=statements)로 보여준다.
+//http://localhost:8080/internal/metrics/sql?sort=time&limit=10
+@RestController
+@RequiredArgsConstructor
+public class SqlMetricsApiController {
+
+    private final SqlMetricsRegistry sqlMetricsRegistry;
+
+    @GetMapping("/internal/metrics/sql")
+    public List<EndpointSqlDto> sqlMetrics(@RequestParam(value = "sort", defaultValue = "statements") String sort,
+                                           @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return sqlMetricsRegistry.findAll().stream()
+                .map(EndpointSqlDto::new)
+                .sorted(comparator(sort).reversed())
+                .limit(limit)
+                .collect(toList());
+    }
+
+    @DeleteMapping("/internal/metrics/sql")
+    public void resetSqlMetrics() {
+        sqlMetricsRegistry.reset();
+    }
+
+    private Comparator<EndpointSqlDto> comparator(String sort) {
+        switch (sort) {
+            case "time":
+                return Comparator.comparingDouble(EndpointSqlDto::getAvgElapsedMillis);
+            case "rows":
+                return Comparator.comparingDouble(EndpointSqlDto::getAvgRows);
+            case "suspects":
+                return Comparator.comparingLong(EndpointSqlDto::getSuspectedRequests);
+            case "statements":
+                return Comparator.comparingDouble(EndpointSqlDto::getAvgStatements);
+            default:
+                throw new IllegalArgumentException("sort는 statements, time, rows, suspects 중 하나입니다. sort=" + sort);
+        }
+    }
+
+    @Data
+    static class EndpointSqlDto {
+        private String endpoint;
+        private long requests;
+        private long statements;
+        private double avgStatements;
+        private long maxStatements;
+        private double totalElapsedMillis;
+        private double avgElapsedMillis;
+        private long rows;
+        private double avgRows;
+        private long suspectedRequests;
+        private List<SuspectDto> suspects;
+
+        EndpointSqlDto(EndpointSqlStats stats) {
+            endpoint = stats.getEndpoint();
+            requests = stats.getRequests();
+            statements = stats.getStatements();
+            maxStatements = stats.getMaxStatements();
+            totalElapsedMillis = stats.getElapsedNanos() / 1_000_000.0;
+            rows = stats.getRows();
+            suspectedRequests = stats.getSuspectedRequests();
+            avgStatements = requests == 0 ? 0 : (double) statements / requests;
+            avgElapsedMillis = requests == 0 ? 0 : totalElapsedMillis / requests;
+            avgRows = requests == 0 ? 0 : (double) rows / requests;
+            suspects = stats.getSuspects().values().stream()
+                    .map(SuspectDto::new)
+                    .sorted(Comparator.comparingLong(SuspectDto::getMaxRepeats).reversed())
+                    .collect(toList());
+        }
+    }
+
+    @Data
+    static class SuspectDto {
+        private String sql;
+        private long requests;
+        private long maxRepeats;
+
+        SuspectDto(EndpointSqlStats.SuspectShape shape) {
+            sql = shape.getSql();
+            requests = shape.getRequests();
+            maxRepeats = shape.getMaxRepeats();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Accept 헤더로 JSON 대신 Smile(application/x-jackson-smile), CBOR(application/cbor)를 받을 수 있게 한다.
+ * 스프링 MVC 기본 컨버터는 ObjectMapper를 따로 만들어서 부트 설정과 Module 빈(Hibernate5Module, OrderJsonModule)이 빠진다.
+ * 부트가 설정해주는 Jackson2ObjectMapperBuilder로 만들어서 JSON과 같은 모양으로 나가게 한다.
+ * 컨버터 순서가 JSON 뒤라서 Accept가 없거나 아무 타입이나 받는 요청은 지금처럼 JSON으로 나간다.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    //Smile은 같은 필드 이름이 반복되면 앞에 쓴 걸 참조로 쓴다.(orderItems, itemName 등)
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URISyntaxException;
+
+/**
+ * 2차 캐시용 Ehcache CacheManager를 ehcache.xml로 만들어서 하이버네이트에 넘겨준다.
+ * 설정 파일 없이 만들면 캐시 크기 제한도 만료도 없는 캐시가 생기기 때문에 직접 만든다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    private static final String EHCACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() throws URISyntaxException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        return Caching.getCachingProvider(EHCACHE_PROVIDER)
+                .getCacheManager(classLoader.getResource("ehcache.xml").toURI(), classLoader);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
@@ -2,7 +2,9 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.AggregateVersions;
 import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.OptimisticLockRetry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -10,6 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -18,6 +21,8 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final AggregateVersions aggregateVersions;
 
     @GetMapping("/items/new")
     public String createForm(Model model) {
@@ -40,7 +45,10 @@ public class ItemController {
     }
 
     @GetMapping("/items")
-    public String list(Model model) {
+    public String list(Model model, WebRequest webRequest) {
+        if (webRequest.checkNotModified(aggregateVersions.etag("items", AggregateVersions.Aggregate.ITEM))) {
+            return null; //상품이 바뀌지 않았으면 304
+        }
         List<Item> items = itemService.findItems();
         model.addAttribute("items",items);
         return "items/itemList";
@@ -75,7 +83,8 @@ public class ItemController {
 //        book.setIsbn(form.getIsbn());
 //
 //        itemService.saveItem(book);
-        itemService.updateItem(itemId,form.getName(),form.getPrice(),form.getStockQuantity());
+        optimisticLockRetry.run(() ->
+                itemService.updateItem(itemId,form.getName(),form.getPrice(),form.getStockQuantity()));
         return "redirect:/items";
     }
 }
@@ -4,13 +4,16 @@ import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.AggregateVersions;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OptimisticLockRetry;
 import jpabook.jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -21,9 +24,16 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final AggregateVersions aggregateVersions;
 
     @GetMapping("/order")
-    public String createForm(Model model){
+    public String createForm(Model model, WebRequest webRequest){
+        //회원, 상품 목록이 둘 다 그대로면 304
+        if (webRequest.checkNotModified(aggregateVersions.etag("order-form",
+                AggregateVersions.Aggregate.MEMBER, AggregateVersions.Aggregate.ITEM))) {
+            return null;
+        }
 
         List<Member> members = memberService.findMembers();
         List<Item> items = itemService.findItems();
@@ -39,7 +49,8 @@ public class OrderController {
             ,@RequestParam("itemId") Long itemId
         ,@RequestParam("count") int count) {
 
-        orderService.order(memberId, itemId, count);
+        //같은 상품에 동시에 주문이 들어와서 @Version 충돌이 나면 몇 번 다시 시도한다.
+        optimisticLockRetry.execute(() -> orderService.order(memberId, itemId, count));
         return "redirect:/orders";
     }
 
@@ -53,7 +64,7 @@ public class OrderController {
 
     @PostMapping("/orders/{orderId}/cancel")
     public String cancelOrder(@PathVariable("orderId") Long orderId) {
-        orderService.cancelOrder(orderId);
+        optimisticLockRetry.run(() -> orderService.cancelOrder(orderId));
 
         return "redirect:/orders";
     }
@@ -0,0 +1,371 @@
+package jpabook.jpashop.datagen;
+
+import jpabook.jpashop.repository.MemberNameFilter;
+import jpabook.jpashop.repository.MemberNameIndex;
+import jpabook.jpashop.service.AggregateVersions;
+import jpabook.jpashop.service.OrderSummaryService;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+
+/**
+ * 성능 테스트용 대량 데이터 생성기
+ *
+ * JPA를 거치지 않고 JDBC batch insert로 넣는다. 행을 chunk 단위로 나눠서 여러 스레드가 동시에 넣고,
+ * chunk마다 (seed, 테이블, chunk 번호)로 Random을 만들기 때문에 스레드 수와 상관없이 같은 seed면 같은 데이터가 나온다.
+ *
+ * 현실적인 쏠림을 흉내낸다. 일부 인기 상품에 주문이 몰리고, 일부 회원이 주문을 많이 한다. (skew 참고)
+ * 넣고 나면 시퀀스를 생성한 id 뒤로 옮겨서 이후 persist와 id가 겹치지 않게 한다.
+ */
+@Slf4j
+@Component
+public class DataGenerator {
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_ITEMS_PER_ORDER = 5;
+
+    private static final String[] CITIES = {"서울", "부산", "대구", "인천", "광주", "대전", "울산", "수원", "진주", "제주"};
+
+    private static final String CATEGORY_SQL = "insert into category (category_id, name, parent_id, path) values (?, ?, ?, ?)";
+    private static final String MEMBER_SQL = "insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)";
+    private static final String ITEM_SQL = "insert into item (dtype, item_id, name, price, stock_quantity, version, author, isbn, artist, etc, director, actor)" +
+            " values (?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String CATEGORY_ITEM_SQL = "insert into category_item (category_id, item_id) values (?, ?)";
+    private static final String DELIVERY_SQL = "insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)";
+    private static final String ORDER_SQL = "insert into orders (order_id, member_id, delivery_id, order_date, status, total_price, item_count)" +
+            " values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ORDER_ITEM_SQL = "insert into order_item (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderSummaryService orderSummaryService;
+    private final MemberNameIndex memberNameIndex;
+    private final MemberNameFilter memberNameFilter;
+    private final AggregateVersions aggregateVersions;
+
+    public DataGenerator(DataSource dataSource, OrderSummaryService orderSummaryService, MemberNameIndex memberNameIndex,
+                         MemberNameFilter memberNameFilter, AggregateVersions aggregateVersions) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.orderSummaryService = orderSummaryService;
+        this.memberNameIndex = memberNameIndex;
+        this.memberNameFilter = memberNameFilter;
+        this.aggregateVersions = aggregateVersions;
+    }
+
+    public Report generate(Plan plan) {
+        if (plan.getOrders() > 0 && (plan.getMembers() <= 0 || plan.getItems() <= 0)) {
+            throw new IllegalArgumentException("주문을 만들려면 회원과 상품이 한 건 이상 있어야 합니다.");
+        }
+        long begin = System.nanoTime();
+        Ids ids = new Ids();
+        Report report = new Report();
+        ExecutorService pool = Executors.newFixedThreadPool(plan.getThreads());
+        try {
+            //FK 순서대로: category -> member, item(+category_item) -> delivery, orders, order_item
+            report.add("category", timed("category", () -> insertCategories(plan, ids)));
+            report.add("member", parallel(pool, plan, "member", plan.getMembers(), (rnd, from, to) -> insertMembers(ids, from, to)));
+            report.add("item", parallel(pool, plan, "item", plan.getItems(), (rnd, from, to) -> insertItems(plan, ids, rnd, from, to)));
+            report.add("orders", parallel(pool, plan, "orders", plan.getOrders(), (rnd, from, to) -> insertOrders(plan, ids, rnd, from, to)));
+        } finally {
+            pool.shutdown();
+        }
+        restartSequences(ids);
+        //JDBC로 넣은 주문은 order_summary가 없으니까 원본으로 다시 만든다.
+        report.add("order_summary", timed("order_summary", orderSummaryService::rebuild));
+        memberNameIndex.rebuild(); //회원 이름 검색 인덱스도
+        memberNameFilter.rebuild(); //가입 중복 확인용 필터도
+        aggregateVersions.bump(AggregateVersions.Aggregate.MEMBER); //목록 ETag
+        aggregateVersions.bump(AggregateVersions.Aggregate.ITEM);
+
+        report.setElapsedNanos(System.nanoTime() - begin);
+        log.info("데이터 생성 완료. rows={}, {} rows/sec", report.getRows(), String.format("%.0f", report.getRowsPerSecond()));
+        return report;
+    }
+
+    //== 카테고리: 최상위 categories/10개, 나머지는 그 아래에 고르게 ==//
+    private long insertCategories(Plan plan, Ids ids) {
+        int total = plan.getCategories();
+        if (total == 0) {
+            return 0;
+        }
+        int roots = Math.max(1, total / 10);
+        ids.categoryBase = maxId("category", "category_id");
+
+        List<Object[]> rows = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            long id = ids.categoryBase + 1 + i;
+            Long parentId = i < roots ? null : ids.categoryBase + 1 + (i % roots);
+            String path = (parentId == null ? "/" : "/" + parentId + "/") + id + "/"; //Category.path
+            rows.add(new Object[]{id, (parentId == null ? "카테고리" : "하위카테고리") + (i + 1), parentId, path});
+        }
+        //부모가 먼저 들어가야 하니까 최상위부터
+        jdbcTemplate.batchUpdate(CATEGORY_SQL, rows.subList(0, roots));
+        jdbcTemplate.batchUpdate(CATEGORY_SQL, rows.subList(roots, total));
+        return total;
+    }
+
+    //== 회원 ==//
+    private long insertMembers(Ids ids, long from, long to) {
+        Batch batch = new Batch(MEMBER_SQL);
+        for (long i = from; i < to; i++) {
+            long id = ids.memberBase + 1 + i;
+            batch.add(id, "회원" + id, CITIES[(int) (i % CITIES.length)], "거리" + (i % 1000), String.format("%05d", i % 100000));
+            if (batch.isFull()) {
+                batch.flush();
+            }
+        }
+        return batch.finish();
+    }
+
+    //== 상품: Book 60%, Album 25%, Movie 15%. 카테고리는 하나나 두 개 ==//
+    private long insertItems(Plan plan, Ids ids, Random rnd, long from, long to) {
+        Batch items = new Batch(ITEM_SQL);
+        Batch categoryItems = new Batch(CATEGORY_ITEM_SQL);
+        for (long i = from; i < to; i++) {
+            long id = ids.itemBase + 1 + i;
+            int price = itemPrice(i);
+            int stock = 100 + rnd.nextInt(10_000);
+            int type = rnd.nextInt(100);
+            if (type < 60) {
+                items.add("B", id, "책" + id, price, stock, "저자" + rnd.nextInt(10_000), "isbn-" + id, null, null, null, null);
+            } else if (type < 85) {
+                items.add("A", id, "앨범" + id, price, stock, null, null, "아티스트" + rnd.nextInt(5_000), "기타", null, null);
+            } else {
+                items.add("M", id, "영화" + id, price, stock, null, null, null, null, "감독" + rnd.nextInt(2_000), "배우" + rnd.nextInt(20_000));
+            }
+
+            if (plan.getCategories() > 0) {
+                int first = rnd.nextInt(plan.getCategories());
+                categoryItems.add(ids.categoryBase + 1 + first, id);
+                if (rnd.nextInt(3) == 0) {
+                    int second = (first + 1 + rnd.nextInt(Math.max(1, plan.getCategories() - 1))) % plan.getCategories();
+                    if (second != first) {
+                        categoryItems.add(ids.categoryBase + 1 + second, id);
+                    }
+                }
+            }
+            //category_item은 item을 참조하니까 항상 item 먼저
+            if (items.isFull()) {
+                items.flush();
+                categoryItems.flush();
+            }
+        }
+        return items.finish() + categoryItems.finish();
+    }
+
+    //== 주문: 회원과 상품은 skew를 줘서 고르고, 주문당 상품 1~5개 ==//
+    private long insertOrders(Plan plan, Ids ids, Random rnd, long from, long to) {
+        Batch deliveries = new Batch(DELIVERY_SQL);
+        Batch orders = new Batch(ORDER_SQL);
+        Batch orderItems = new Batch(ORDER_ITEM_SQL);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (long i = from; i < to; i++) {
+            long orderId = ids.orderBase + 1 + i;
+            long memberIndex = skewed(rnd, plan.getMembers(), plan.getSkew());
+            String city = CITIES[(int) (memberIndex % CITIES.length)];
+            boolean canceled = rnd.nextInt(100) < 10;
+            boolean delivered = !canceled && rnd.nextInt(100) < 60;
+
+            deliveries.add(orderId, city, "거리" + (memberIndex % 1000), String.format("%05d", memberIndex % 100000),
+                    delivered ? "COMP" : "READY");
+            LocalDateTime orderDate = now.minusSeconds(rnd.nextInt(365 * 24 * 60 * 60));
+
+            //orders.total_price, item_count는 주문상품 합계
+            int lines = 1 + rnd.nextInt(MAX_ITEMS_PER_ORDER);
+            int totalPrice = 0;
+            int itemCount = 0;
+            for (int line = 0; line < lines; line++) {
+                long itemIndex = skewed(rnd, plan.getItems(), plan.getSkew());
+                int price = itemPrice(itemIndex);
+                int count = 1 + rnd.nextInt(3);
+                orderItems.add(ids.orderItemBase + 1 + i * MAX_ITEMS_PER_ORDER + line, orderId,
+                        ids.itemBase + 1 + itemIndex, price, count);
+                totalPrice += price * count;
+                itemCount += count;
+            }
+            orders.add(orderId, ids.memberBase + 1 + memberIndex, orderId, Timestamp.valueOf(orderDate),
+                    canceled ? "CANCEL" : "ORDER", totalPrice, itemCount);
+
+            if (orders.isFull()) {
+                deliveries.flush();
+                orders.flush();
+                orderItems.flush();
+            }
+        }
+        return deliveries.finish() + orders.finish() + orderItems.finish();
+    }
+
+    /**
+     * 0 ~ n-1 중 하나를 고르는데 앞쪽 번호일수록 잘 나온다. exponent가 클수록 더 쏠린다.
+     * exponent=3이면 상위 10%가 절반 남짓(약 54%)을 가져간다. exponent=1이면 균등 분포.
+     */
+    static long skewed(Random rnd, long n, double exponent) {
+        return Math.min(n - 1, (long) (n * Math.pow(rnd.nextDouble(), exponent)));
+    }
+
+    private static int itemPrice(long index) {
+        return 1000 + (int) (index % 50) * 1000;
+    }
+
+    //== chunk 병렬 처리 ==//
+
+    private interface ChunkWriter {
+        long write(Random rnd, long from, long to);
+    }
+
+    private long parallel(ExecutorService pool, Plan plan, String table, long total, ChunkWriter writer) {
+        return timed(table, () -> {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (long from = 0; from < total; from += CHUNK_SIZE) {
+                long start = from;
+                long end = Math.min(total, from + CHUNK_SIZE);
+                Random rnd = new Random(plan.getSeed() * 31 + table.hashCode() * 17L + start / CHUNK_SIZE);
+                futures.add(pool.submit(() -> writer.write(rnd, start, end)));
+            }
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += await(future);
+            }
+            return rows;
+        });
+    }
+
+    private long timed(String table, LongSupplier step) {
+        long begin = System.nanoTime();
+        long rows = step.getAsLong();
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        log.info("[{}] rows={}, {}s, {} rows/sec", table, rows, String.format("%.1f", seconds),
+                String.format("%.0f", seconds == 0 ? 0 : rows / seconds));
+        return rows;
+    }
+
+    private static long await(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("데이터 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("데이터 생성에 실패했습니다.", e.getCause());
+        }
+    }
+
+    //== id ==//
+
+    //이미 들어있는 데이터 뒤에 이어서 넣는다.
+    private class Ids {
+        long categoryBase;
+        final long memberBase = maxId("member", "member_id");
+        final long itemBase = maxId("item", "item_id");
+        final long orderBase = Math.max(maxOrderId(), maxId("delivery", "delivery_id"));
+        final long orderItemBase = maxOrderItemId();
+    }
+
+    //보관 테이블로 옮긴 주문도 id를 쓰고 있다.
+    private long maxOrderId() {
+        return Math.max(maxId("orders", "order_id"), maxId("orders_archive", "order_id"));
+    }
+
+    private long maxOrderItemId() {
+        return Math.max(maxId("order_item", "order_item_id"), maxId("order_item_archive", "order_item_id"));
+    }
+
+    private long maxId(String table, String column) {
+        Long max = jdbcTemplate.queryForObject("select coalesce(max(" + column + "), 0) from " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    //pooled 옵티마이저는 시퀀스 값 앞쪽 allocationSize만큼을 쓰기 때문에 그만큼 더 띄워준다.
+    private void restartSequences(Ids ids) {
+        restartSequence("category_seq", maxId("category", "category_id"), 100);
+        restartSequence("member_seq", maxId("member", "member_id"), 100);
+        restartSequence("item_seq", maxId("item", "item_id"), 100);
+        restartSequence("item_stock_delta_seq", maxId("item_stock_delta", "item_stock_delta_id"), 100);
+        restartSequence("orders_seq", maxOrderId(), 100);
+        restartSequence("delivery_seq", maxId("delivery", "delivery_id"), 100);
+        restartSequence("order_item_seq", maxOrderItemId(), 100);
+    }
+
+    private void restartSequence(String sequence, long maxId, int allocationSize) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (maxId + allocationSize + 1));
+    }
+
+    //== batch ==//
+
+    private class Batch {
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        private long written;
+
+        Batch(String sql) {
+            this.sql = sql;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+        }
+
+        boolean isFull() {
+            return rows.size() >= BATCH_SIZE;
+        }
+
+        void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                written += rows.size();
+                rows.clear();
+            }
+        }
+
+        //남은 행을 넣고 지금까지 넣은 행 수를 돌려준다.
+        long finish() {
+            flush();
+            return written;
+        }
+    }
+
+    @Getter @Setter
+    public static class Plan {
+        private int categories = 100;
+        private long members = 100_000;
+        private long items = 10_000;
+        private long orders = 1_000_000;
+        private int threads = Math.min(8, Runtime.getRuntime().availableProcessors());
+        private double skew = 3.0;
+        private long seed = 42;
+    }
+
+    @Getter
+    public static class Report {
+        private final Map<String, Long> tables = new LinkedHashMap<>(); //테이블 묶음별 행 수
+        private long rows;
+        @Setter
+        private long elapsedNanos;
+
+        void add(String table, long rows) {
+            tables.put(table, rows);
+            this.rows += rows;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
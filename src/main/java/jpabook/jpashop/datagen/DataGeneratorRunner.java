@@ -0,0 +1,63 @@
+package jpabook.jpashop.datagen;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * jpashop.datagen.enabled=true 로 띄우면 시작할 때 대량 데이터를 만든다. (이때 InitDb는 돌지 않는다)
+ * exit-after=true면 다 만들고 애플리케이션을 종료한다. CLI로는 ./gradlew generateData -Porders=1000000
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.datagen.enabled", havingValue = "true")
+public class DataGeneratorRunner implements ApplicationRunner {
+
+    private final DataGenerator dataGenerator;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${jpashop.datagen.categories:100}")
+    private int categories;
+    @Value("${jpashop.datagen.members:100000}")
+    private long members;
+    @Value("${jpashop.datagen.items:10000}")
+    private long items;
+    @Value("${jpashop.datagen.orders:1000000}")
+    private long orders;
+    @Value("${jpashop.datagen.threads:0}") //0이면 코어 수(최대 8)
+    private int threads;
+    @Value("${jpashop.datagen.skew:3.0}")
+    private double skew;
+    @Value("${jpashop.datagen.seed:42}")
+    private long seed;
+    @Value("${jpashop.datagen.exit-after:false}")
+    private boolean exitAfter;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        DataGenerator.Plan plan = new DataGenerator.Plan();
+        plan.setCategories(categories);
+        plan.setMembers(members);
+        plan.setItems(items);
+        plan.setOrders(orders);
+        if (threads > 0) {
+            plan.setThreads(threads);
+        }
+        plan.setSkew(skew);
+        plan.setSeed(seed);
+
+        DataGenerator.Report report = dataGenerator.generate(plan);
+        log.info("datagen {} ({}ms)", report.getTables(), report.getElapsedNanos() / 1_000_000);
+
+        if (exitAfter) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Data;
+import lombok.Getter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * primary와 레플리카 커넥션 풀을 들고 있고, 커넥션을 꺼낼 때마다 어느 쪽으로 보낼지 정한다.
+ * readOnly 트랜잭션은 레플리카로(여러 개면 돌아가면서), 나머지는 전부 primary로.
+ * 요청 안에서 쓰기 트랜잭션이 한 번이라도 있었으면 그 요청의 나머지 읽기도 primary로 보낸다.
+ * 레플리카가 아직 못 따라왔을 수 있어서, 방금 쓴 걸 바로 다시 읽는 화면이 옛날 값을 보여주지 않게 하기 위해서다.
+ * ETag를 만든 요청도 같은 이유로 primary에서 읽는다. (pinRequestToPrimary)
+ */
+public class DataSourceRouter implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    //요청 안에서 쓰기가 있었는지. 요청 밖(스케줄러, 시작할 때 등)에서는 null이라 트랜잭션마다 따로 정한다.
+    private static final ThreadLocal<boolean[]> REQUEST_WROTE = new ThreadLocal<>();
+
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private final List<String> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public DataSourceRouter(DataSource primary, List<DataSource> replicaDataSources) {
+        routes.put(PRIMARY, new Route(PRIMARY, primary));
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            String name = "replica-" + i;
+            routes.put(name, new Route(name, replicaDataSources.get(i)));
+            replicas.add(name);
+        }
+    }
+
+    public void beginRequest() {
+        REQUEST_WROTE.set(new boolean[1]);
+    }
+
+    public void endRequest() {
+        REQUEST_WROTE.remove();
+    }
+
+    /**
+     * 이 요청의 나머지 읽기를 primary로 보낸다. 요청 밖이거나 레플리카를 쓰지 않으면(필터가 없으면) 아무 일도 없다.
+     * 메모리 버전(AggregateVersions)은 primary 커밋 기준이라, 그 버전으로 ETag를 만든 목록을
+     * 뒤처진 레플리카에서 읽으면 옛날 목록이 새 ETag로 캐시되고 다음 쓰기 전까지 계속 304가 나간다.
+     */
+    public static void pinRequestToPrimary() {
+        boolean[] wrote = REQUEST_WROTE.get();
+        if (wrote != null) {
+            wrote[0] = true;
+        }
+    }
+
+    /**
+     * 지금 트랜잭션이 쓸 커넥션의 route 이름
+     */
+    public String route() {
+        String route = choose();
+        routes.get(route).connections.increment();
+        return route;
+    }
+
+    private String choose() {
+        boolean[] wrote = REQUEST_WROTE.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (wrote != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                wrote[0] = true;
+            }
+            return PRIMARY;
+        }
+        if (replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        if (wrote != null && wrote[0]) {
+            routes.get(PRIMARY).stickyReads.increment();
+            return PRIMARY;
+        }
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+    Map<Object, Object> targets() {
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        routes.forEach((name, route) -> targets.put(name, route.dataSource));
+        return targets;
+    }
+
+    DataSource primary() {
+        return routes.get(PRIMARY).dataSource;
+    }
+
+    public List<RouteStats> getStats() {
+        List<RouteStats> stats = new ArrayList<>(routes.size());
+        for (Route route : routes.values()) {
+            stats.add(route.snapshot());
+        }
+        return stats;
+    }
+
+    public void reset() {
+        for (Route route : routes.values()) {
+            route.connections.reset();
+            route.stickyReads.reset();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Route route : routes.values()) {
+            if (route.dataSource instanceof HikariDataSource) {
+                ((HikariDataSource) route.dataSource).close();
+            }
+        }
+    }
+
+    private static class Route {
+        private final String name;
+        private final DataSource dataSource;
+        private final LongAdder connections = new LongAdder();
+        private final LongAdder stickyReads = new LongAdder();
+
+        Route(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        RouteStats snapshot() {
+            RouteStats stats = new RouteStats();
+            stats.setRoute(name);
+            stats.setConnections(connections.sum());
+            stats.setStickyReads(stickyReads.sum());
+            if (dataSource instanceof HikariDataSource) {
+                HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean(); //풀이 아직 안 떴으면 null
+                if (pool != null) {
+                    stats.setActiveConnections(pool.getActiveConnections());
+                    stats.setIdleConnections(pool.getIdleConnections());
+                    stats.setAwaitingThreads(pool.getThreadsAwaitingConnection());
+                }
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * route별 커넥션 수. stickyReads는 readOnly인데 같은 요청에서 쓰기가 있었거나 ETag를 만들어서 primary로 보낸 수
+     */
+    @Data
+    public static class RouteStats {
+        private String route;
+        private long connections;
+        private long stickyReads;
+        private int activeConnections;
+        private int idleConnections;
+        private int awaitingThreads;
+    }
+}
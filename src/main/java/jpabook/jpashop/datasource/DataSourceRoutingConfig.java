@@ -0,0 +1,65 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.replicas에 URL이 있으면 DataSource를 읽기/쓰기 라우팅으로 바꾼다.
+ * primary는 spring.datasource 설정 그대로, 레플리카는 URL마다 풀을 하나씩 만든다.
+ * 풀은 빈으로 등록하지 않는다. DataSource 빈이 하나여야 p6spy 래핑과 부트 자동설정이 그대로 동작한다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jpashop.datasource.replicas")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public DataSourceRouter dataSourceRouter(DataSourceProperties properties,
+                                             @Value("${jpashop.datasource.replicas}") String[] replicaUrls,
+                                             @Value("${jpashop.datasource.replica-username:${spring.datasource.username:sa}}") String username,
+                                             @Value("${jpashop.datasource.replica-password:${spring.datasource.password:}}") String password) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName(DataSourceRouter.PRIMARY);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replicas.add(replica);
+        }
+        return new DataSourceRouter(primary, replicas);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceRouter dataSourceRouter) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(dataSourceRouter);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    //기본값(HOLD)이면 OSIV 동안 요청의 첫 커넥션을 계속 들고 있어서 뒤의 트랜잭션이 다른 풀로 갈 수 없다.
+    //트랜잭션이 끝날 때마다 커넥션을 돌려주게 해서 트랜잭션마다 다시 라우팅되게 한다.
+    @Bean
+    public HibernatePropertiesCustomizer routingConnectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * 커넥션을 꺼낼 때 DataSourceRouter가 정한 풀로 보낸다.
+ * 트랜잭션이 readOnly인지는 커넥션을 꺼내는 시점에 보기 때문에 앞에 LazyConnectionDataSourceProxy를 둬야 한다.
+ * (JpaTransactionManager는 readOnly를 트랜잭션 동기화에 기록하기 전에 커넥션부터 받는다)
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final DataSourceRouter router;
+
+    ReadWriteRoutingDataSource(DataSourceRouter router) {
+        this.router = router;
+        setTargetDataSources(router.targets());
+        setDefaultTargetDataSource(router.primary());
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.route();
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.datasource;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청 단위로 쓰기 여부를 기억해서, 쓰고 난 뒤의 읽기는 primary로 가게 한다. (DataSourceRouter)
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.datasource.replicas")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final DataSourceRouter dataSourceRouter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        dataSourceRouter.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            dataSourceRouter.endRequest();
+        }
+    }
+}
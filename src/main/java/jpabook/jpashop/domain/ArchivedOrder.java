@@ -0,0 +1,50 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 보관된 주문(orders_archive)
+ * 취소됐거나 보관 기간이 지난 주문은 OrderArchiveService가 orders에서 이쪽으로 옮긴다.
+ * 그래서 기본 조회(orders)는 최근 주문만 읽는다. 옮긴 뒤에는 바뀌지 않는다.
+ */
+@Entity
+@Immutable
+@Table(name = "orders_archive")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrder {
+
+    @Id
+    @Column(name = "order_id") //orders.order_id 그대로
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "member_id")
+    private Member member;
+
+    @OneToMany(mappedBy = "order")
+    private List<ArchivedOrderItem> orderItems = new ArrayList<>();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "delivery_id")
+    private Delivery delivery;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private int totalPrice;
+
+    private int itemCount;
+
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+
+/**
+ * 보관된 주문상품(order_item_archive). ArchivedOrder와 같이 옮겨진다.
+ */
+@Entity
+@Immutable
+@Table(name = "order_item_archive")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrderItem {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id")
+    private ArchivedOrder order;
+
+    private int orderPrice;
+
+    private int count;
+}
@@ -1,25 +1,38 @@
 package jpabook.jpashop.domain;
 
 import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_category_path", columnList = "path")) //하위 트리 조회(path like 'prefix%')용
 @Getter
 @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Category {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq_generator")
+    @SequenceGenerator(name = "category_seq_generator", sequenceName = "category_seq", allocationSize = 100)
     @Column(name = "category_id")
     private Long id;
 
     private String name;
 
+    //루트부터 자기 자신까지의 id 경로. 예) /1/5/12/
+    //하위 카테고리는 모두 이 값으로 시작하기 때문에 깊이와 상관없이 path like '/1/5/%' 한 번으로 찾을 수 있다.
+    @Setter(AccessLevel.NONE)
+    @Column(length = 1000)
+    private String path;
+
 
     @ManyToMany
     @JoinTable(name = "category_item",
@@ -34,9 +47,30 @@ public class Category {
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
 
+    //경로를 id로 만들기 때문에 부모, 자식 모두 persist한 뒤에 부른다.
+    //자식 아래에 이미 하위 카테고리가 있으면 그쪽 경로는 CategoryRepository.movePaths()로 같이 옮겨야 한다.
     public void addChildCategory(Category child) {
+        if (this.path == null || child.getId() == null) {
+            throw new IllegalStateException("저장된 카테고리만 연결할 수 있습니다.");
+        }
+        if (this.path.startsWith(child.currentPath())) {
+            throw new IllegalStateException("자기 자신이나 하위 카테고리 아래로는 옮길 수 없습니다.");
+        }
+        if (child.getParent() != null) {
+            child.getParent().getChild().remove(child);
+        }
         this.child.add(child);
         child.setParent(this);
+        child.path = this.path + child.getId() + "/";
+    }
+
+    //최상위 카테고리로 만든다. id가 있어야 하니까 persist한 뒤에 부른다.
+    public void markAsRoot() {
+        this.path = "/" + getId() + "/";
+    }
+
+    private String currentPath() {
+        return path == null ? "/" + id + "/" : path;
     }
 
 }
@@ -11,7 +11,9 @@ import javax.persistence.*;
 @Setter
 public class Delivery {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq_generator")
+    @SequenceGenerator(name = "delivery_seq_generator", sequenceName = "delivery_seq", allocationSize = 100)
     @Column(name="delivery_id")
     private Long id;
 
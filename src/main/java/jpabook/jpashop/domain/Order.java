@@ -12,12 +12,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+        indexes = {
+                @Index(name = "idx_orders_order_date_id", columnList = "orderDate, order_id"), //키셋 페이징용
+                @Index(name = "idx_orders_total_price", columnList = "totalPrice"), //주문금액 검색/정렬용
+                @Index(name = "idx_orders_status", columnList = "status") //취소된 주문 보관(OrderArchiveService)
+        })
 @Getter @Setter
 @NoArgsConstructor(access= AccessLevel.PROTECTED)
 public class Order {
 
-    @Id @GeneratedValue
+    //allocationSize만큼 id를 미리 받아두기 때문에 insert마다 시퀀스를 호출하지 않는다.(JDBC batch insert 가능)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq_generator")
+    @SequenceGenerator(name = "orders_seq_generator", sequenceName = "orders_seq", allocationSize = 100)
     @Column(name ="order_id")
     private Long id;
 
@@ -41,6 +49,14 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; //주문상태 [ORDER, CANCEL]
 
+    //주문상품을 추가할 때마다 같이 더해둔다. 목록에서 금액을 보여주거나 금액으로 검색/정렬할 때 order_item을 읽지 않아도 된다.
+    //주문상품은 주문을 만들 때만 추가되고 취소해도 바뀌지 않으니까 한 번 정해지면 그대로다.
+    @Setter(AccessLevel.NONE)
+    private int totalPrice; //전체 주문 가격
+
+    @Setter(AccessLevel.NONE)
+    private int itemCount; //전체 주문 수량
+
     public void setMember(Member member) {
         this.member = member;
         member.getOrders().add(this);
@@ -49,6 +65,8 @@ public class Order {
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
+        totalPrice += orderItem.getTotalPrice();
+        itemCount += orderItem.getCount();
     }
 
     public void setDelivery(Delivery delivery) {
@@ -73,28 +91,23 @@ public class Order {
     //==비즈니스 로직==//
     /**
      * 주문 취소
+     * 주문 금액/수량은 취소해도 주문 당시 값 그대로 둔다.
      */
     public void cancel() {
-        if(delivery.getStatus() == DeliveryStatus.COMP) {
-            throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
-        }
-        this.setStatus(OrderStatus.CANCEL);
+        cancelWithoutStock();
         for(OrderItem orderItem: orderItems){
             orderItem.canel();
         }
     }
 
-    //==조회 로직==//
     /**
-     * 전체 주문 가격 조회
+     * 주문 취소(재고 복구 없이 상태만 변경)
+     * 재고를 엔티티 밖에서 관리할 때 사용한다. 재고 복구는 호출하는 쪽에서 해야 한다.
      */
-    public int getTotalPrice() {
-        int totalPrice = 0;
-        for(OrderItem orderItem: orderItems) {
-            totalPrice += orderItem.getTotalPrice();
+    public void cancelWithoutStock() {
+        if(delivery.getStatus() == DeliveryStatus.COMP) {
+            throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
         }
-//        int totalPrice = orderItems.stream()
-//                .mapToInt(OrderItem::getTotalPrice).sum();
-        return totalPrice;
+        this.setStatus(OrderStatus.CANCEL);
     }
 }
@@ -15,7 +15,9 @@ import javax.persistence.*;
 @NoArgsConstructor(access= AccessLevel.PROTECTED)
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq_generator")
+    @SequenceGenerator(name = "order_item_seq_generator", sequenceName = "order_item_seq", allocationSize = 100)
     @Column(name="order_item_id")
     private Long id;
 
@@ -38,12 +40,18 @@ public class OrderItem {
 
     //==생성 메서드==//
     public static OrderItem createOrderItem(Item item,int orderPrice,int count) {
+        OrderItem orderItem = createReservedOrderItem(item, orderPrice, count);
+
+        item.removeStock(count);
+        return orderItem;
+    }
+
+    //재고를 엔티티 밖(재고 예약 엔진 등)에서 이미 차감했을 때 사용한다. 여기서는 재고를 건드리지 않는다.
+    public static OrderItem createReservedOrderItem(Item item,int orderPrice,int count) {
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
-
-        item.removeStock(count);
         return orderItem;
     }
 
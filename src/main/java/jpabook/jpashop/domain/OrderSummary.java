@@ -0,0 +1,60 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회용 읽기 모델(order_summary)
+ * orders, member, delivery를 조인하지 않고 이 테이블 하나로 목록/검색을 처리한다.
+ * 주문/취소/회원 이름 변경과 같은 트랜잭션에서 같이 바뀌기 때문에 커밋된 시점에는 원본과 항상 같다.
+ * 어긋났을 때는 OrderSummaryService.rebuild()로 다시 만든다.
+ */
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_order_date", columnList = "orderDate, order_id"),
+        @Index(name = "idx_order_summary_status_date", columnList = "status, orderDate"),
+        @Index(name = "idx_order_summary_member_name", columnList = "memberName")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id") //orders.order_id를 그대로 쓴다.
+    private Long id;
+
+    private Long memberId;
+
+    private String memberName;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime orderDate;
+
+    @Embedded
+    private Address address; //배송지
+
+    private int totalPrice;
+
+    //==생성 메서드==//
+    public static OrderSummary create(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.id = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.status = order.getStatus();
+        summary.orderDate = order.getOrderDate();
+        summary.address = order.getDelivery().getAddress();
+        summary.totalPrice = order.getTotalPrice();
+        return summary;
+    }
+
+    public void changeStatus(OrderStatus status) {
+        this.status = status;
+    }
+}
@@ -3,6 +3,8 @@ package jpabook.jpashop.domain.item;
 import jpabook.jpashop.domain.Category;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -11,12 +13,15 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
+@Cacheable //2차 캐시. 자식(Book, Album, Movie)도 이 영역을 같이 쓴다.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) //싱글테이블 전략
 @DiscriminatorColumn(name="dtype")
 public abstract class Item {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq_generator")
+    @SequenceGenerator(name = "item_seq_generator", sequenceName = "item_seq", allocationSize = 100)
     @Column(name = "item_id")
     private Long id;
 
@@ -24,6 +29,9 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
+    @Version //동시에 같은 상품을 수정하면 나중에 커밋하는 쪽이 실패한다.(lost update 방지)
+    private Long version;
+
     @ManyToMany(mappedBy="items")
     private List<Category> categories = new ArrayList<>();
 
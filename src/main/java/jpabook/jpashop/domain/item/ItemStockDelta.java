@@ -0,0 +1,39 @@
+package jpabook.jpashop.domain.item;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * 아직 item 테이블에 반영되지 않은 재고 변경분(저널)
+ * 주문 트랜잭션에서는 item row를 건드리지 않고 여기에 insert만 하고,
+ * StockReservationEngine이 주기적으로 모아서 item.stock_quantity에 한 번에 반영한 뒤 지운다.
+ * 주문과 같은 트랜잭션에서 기록되기 때문에 서버가 죽어도 item 재고 + 남은 저널 합계로 정확히 복구된다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "item_stock_delta", indexes = @Index(name = "idx_item_stock_delta_item", columnList = "item_id"))
+public class ItemStockDelta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_stock_delta_seq_generator")
+    @SequenceGenerator(name = "item_stock_delta_seq_generator", sequenceName = "item_stock_delta_seq", allocationSize = 100)
+    @Column(name = "item_stock_delta_id")
+    private Long id;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    private int delta; //차감은 음수, 복구는 양수
+
+    //==생성 메서드==//
+    public static ItemStockDelta create(Long itemId, int delta) {
+        ItemStockDelta stockDelta = new ItemStockDelta();
+        stockDelta.itemId = itemId;
+        stockDelta.delta = delta;
+        return stockDelta;
+    }
+}
@@ -0,0 +1,107 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 엔드포인트별 누적 SQL 집계
+ */
+public class EndpointSqlStats {
+
+    private final String endpoint;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final LongAdder suspectedRequests = new LongAdder();
+    private final Map<String, SuspectShape> suspects = new ConcurrentHashMap<>();
+
+    EndpointSqlStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void record(RequestSqlStats request, int nPlusOneThreshold) {
+        requests.increment();
+        statements.add(request.getStatements());
+        elapsedNanos.add(request.getElapsedNanos());
+        rows.add(request.getRows());
+        maxStatements.accumulateAndGet(request.getStatements(), Math::max);
+
+        boolean flagged = false;
+        for (Map.Entry<String, Integer> shape : request.getShapes().entrySet()) {
+            if (shape.getValue() >= nPlusOneThreshold) {
+                suspects.computeIfAbsent(shape.getKey(), SuspectShape::new).record(shape.getValue());
+                flagged = true;
+            }
+        }
+        if (flagged) {
+            suspectedRequests.increment();
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getMaxStatements() {
+        return maxStatements.get();
+    }
+
+    public long getSuspectedRequests() {
+        return suspectedRequests.sum();
+    }
+
+    public Map<String, SuspectShape> getSuspects() {
+        return suspects;
+    }
+
+    /**
+     * 한 요청 안에서 threshold번 이상 반복된 SQL shape (N+1 의심)
+     */
+    public static class SuspectShape {
+
+        private final String sql;
+        private final LongAdder requests = new LongAdder();
+        private final AtomicLong maxRepeats = new AtomicLong();
+
+        SuspectShape(String sql) {
+            this.sql = sql;
+        }
+
+        void record(int repeats) {
+            requests.increment();
+            maxRepeats.accumulateAndGet(repeats, Math::max);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getMaxRepeats() {
+            return maxRepeats.get();
+        }
+    }
+}
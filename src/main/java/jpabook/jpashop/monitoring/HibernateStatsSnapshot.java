@@ -0,0 +1,280 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 하이버네이트 Statistics 누적값을 한 시점에 떠 놓은 것.
+ * 두 스냅샷의 차이(minus)가 그 구간(윈도우) 동안 일어난 일이다.
+ */
+@Getter
+public class HibernateStatsSnapshot {
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    private long sessions;
+    private long transactions;
+    private long flushes;
+    private long statements; //prepareStatement 수 = 실제로 나간 SQL 수
+    private long optimisticFailures;
+    private long entityLoads;
+    private long entityFetches;
+    private long collectionLoads;
+    private long collectionFetches;
+    private long queryExecutions;
+    private long secondLevelCacheHits;
+    private long secondLevelCacheMisses;
+    private long secondLevelCachePuts;
+    private long queryCacheHits;
+    private long queryCacheMisses;
+
+    private Map<String, EntityCounts> entities = new HashMap<>();
+    private Map<String, CollectionCounts> collections = new HashMap<>();
+    private Map<String, QueryCounts> queries = new HashMap<>();
+    private Map<String, RegionCounts> regions = new HashMap<>();
+
+    private HibernateStatsSnapshot() {
+    }
+
+    public static HibernateStatsSnapshot take(Statistics statistics) {
+        HibernateStatsSnapshot s = new HibernateStatsSnapshot();
+        s.from = s.to = LocalDateTime.now();
+        s.sessions = statistics.getSessionOpenCount();
+        s.transactions = statistics.getTransactionCount();
+        s.flushes = statistics.getFlushCount();
+        s.statements = statistics.getPrepareStatementCount();
+        s.optimisticFailures = statistics.getOptimisticFailureCount();
+        s.entityLoads = statistics.getEntityLoadCount();
+        s.entityFetches = statistics.getEntityFetchCount();
+        s.collectionLoads = statistics.getCollectionLoadCount();
+        s.collectionFetches = statistics.getCollectionFetchCount();
+        s.queryExecutions = statistics.getQueryExecutionCount();
+        s.secondLevelCacheHits = statistics.getSecondLevelCacheHitCount();
+        s.secondLevelCacheMisses = statistics.getSecondLevelCacheMissCount();
+        s.secondLevelCachePuts = statistics.getSecondLevelCachePutCount();
+        s.queryCacheHits = statistics.getQueryCacheHitCount();
+        s.queryCacheMisses = statistics.getQueryCacheMissCount();
+
+        for (String name : statistics.getEntityNames()) {
+            s.entities.put(name, new EntityCounts(statistics.getEntityStatistics(name)));
+        }
+        for (String role : statistics.getCollectionRoleNames()) {
+            s.collections.put(role, new CollectionCounts(statistics.getCollectionStatistics(role)));
+        }
+        //getQueries()에 있는 것만 읽는다. getQueryStatistics()는 없는 HQL이면 새로 만들어 버린다.
+        for (String hql : statistics.getQueries()) {
+            s.queries.put(hql, new QueryCounts(statistics.getQueryStatistics(hql)));
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                s.regions.put(region, new RegionCounts(regionStatistics));
+            }
+        }
+        return s;
+    }
+
+    /**
+     * previous 이후에 늘어난 만큼. 바뀐 게 없는 항목은 빠진다.
+     */
+    public HibernateStatsSnapshot minus(HibernateStatsSnapshot previous) {
+        HibernateStatsSnapshot d = new HibernateStatsSnapshot();
+        d.from = previous.to;
+        d.to = to;
+        d.sessions = delta(sessions, previous.sessions);
+        d.transactions = delta(transactions, previous.transactions);
+        d.flushes = delta(flushes, previous.flushes);
+        d.statements = delta(statements, previous.statements);
+        d.optimisticFailures = delta(optimisticFailures, previous.optimisticFailures);
+        d.entityLoads = delta(entityLoads, previous.entityLoads);
+        d.entityFetches = delta(entityFetches, previous.entityFetches);
+        d.collectionLoads = delta(collectionLoads, previous.collectionLoads);
+        d.collectionFetches = delta(collectionFetches, previous.collectionFetches);
+        d.queryExecutions = delta(queryExecutions, previous.queryExecutions);
+        d.secondLevelCacheHits = delta(secondLevelCacheHits, previous.secondLevelCacheHits);
+        d.secondLevelCacheMisses = delta(secondLevelCacheMisses, previous.secondLevelCacheMisses);
+        d.secondLevelCachePuts = delta(secondLevelCachePuts, previous.secondLevelCachePuts);
+        d.queryCacheHits = delta(queryCacheHits, previous.queryCacheHits);
+        d.queryCacheMisses = delta(queryCacheMisses, previous.queryCacheMisses);
+
+        entities.forEach((name, counts) -> {
+            EntityCounts changed = counts.minus(previous.entities.getOrDefault(name, EntityCounts.ZERO));
+            if (!changed.isEmpty()) {
+                d.entities.put(name, changed);
+            }
+        });
+        collections.forEach((role, counts) -> {
+            CollectionCounts changed = counts.minus(previous.collections.getOrDefault(role, CollectionCounts.ZERO));
+            if (!changed.isEmpty()) {
+                d.collections.put(role, changed);
+            }
+        });
+        queries.forEach((hql, counts) -> {
+            QueryCounts changed = counts.minus(previous.queries.getOrDefault(hql, QueryCounts.ZERO));
+            if (!changed.isEmpty()) {
+                d.queries.put(hql, changed);
+            }
+        });
+        regions.forEach((region, counts) -> {
+            RegionCounts changed = counts.minus(previous.regions.getOrDefault(region, RegionCounts.ZERO));
+            if (!changed.isEmpty()) {
+                d.regions.put(region, changed);
+            }
+        });
+        return d;
+    }
+
+    //Statistics.clear()나 쿼리 통계가 밀려났다가(query_max_size) 다시 생기면 누적값이 줄어든다. 그때는 0부터 다시 센 것으로 본다.
+    private static long delta(long current, long previous) {
+        return current >= previous ? current - previous : current;
+    }
+
+    @Getter
+    public static class EntityCounts {
+
+        static final EntityCounts ZERO = new EntityCounts(0, 0, 0, 0, 0, 0, 0);
+
+        private final long loads;
+        private final long fetches; //지연 로딩/연관 조회로 따로 나간 횟수. 배치 페칭이면 한 번에 loads가 여러 개 늘어난다.
+        private final long inserts;
+        private final long updates;
+        private final long deletes;
+        private final long cacheHits;
+        private final long cacheMisses;
+
+        EntityCounts(EntityStatistics statistics) {
+            this(statistics.getLoadCount(), statistics.getFetchCount(), statistics.getInsertCount(),
+                    statistics.getUpdateCount(), statistics.getDeleteCount(),
+                    //캐시 안 하는 엔티티는 음수(NOT_CACHED_COUNT)가 나온다.
+                    statistics.getCacheRegionName() == null ? 0 : statistics.getCacheHitCount(),
+                    statistics.getCacheRegionName() == null ? 0 : statistics.getCacheMissCount());
+        }
+
+        private EntityCounts(long loads, long fetches, long inserts, long updates, long deletes, long cacheHits, long cacheMisses) {
+            this.loads = loads;
+            this.fetches = fetches;
+            this.inserts = inserts;
+            this.updates = updates;
+            this.deletes = deletes;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+
+        EntityCounts minus(EntityCounts p) {
+            return new EntityCounts(delta(loads, p.loads), delta(fetches, p.fetches), delta(inserts, p.inserts),
+                    delta(updates, p.updates), delta(deletes, p.deletes),
+                    delta(cacheHits, p.cacheHits), delta(cacheMisses, p.cacheMisses));
+        }
+
+        boolean isEmpty() {
+            return loads + fetches + inserts + updates + deletes + cacheHits + cacheMisses == 0;
+        }
+    }
+
+    @Getter
+    public static class CollectionCounts {
+
+        static final CollectionCounts ZERO = new CollectionCounts(0, 0, 0, 0, 0);
+
+        private final long loads;
+        private final long fetches;
+        private final long recreates;
+        private final long updates;
+        private final long removes;
+
+        CollectionCounts(CollectionStatistics statistics) {
+            this(statistics.getLoadCount(), statistics.getFetchCount(), statistics.getRecreateCount(),
+                    statistics.getUpdateCount(), statistics.getRemoveCount());
+        }
+
+        private CollectionCounts(long loads, long fetches, long recreates, long updates, long removes) {
+            this.loads = loads;
+            this.fetches = fetches;
+            this.recreates = recreates;
+            this.updates = updates;
+            this.removes = removes;
+        }
+
+        CollectionCounts minus(CollectionCounts p) {
+            return new CollectionCounts(delta(loads, p.loads), delta(fetches, p.fetches),
+                    delta(recreates, p.recreates), delta(updates, p.updates), delta(removes, p.removes));
+        }
+
+        boolean isEmpty() {
+            return loads + fetches + recreates + updates + removes == 0;
+        }
+    }
+
+    @Getter
+    public static class QueryCounts {
+
+        static final QueryCounts ZERO = new QueryCounts(0, 0, 0, 0, 0, 0);
+
+        private final long executions;
+        private final long totalTimeMillis;
+        private final long maxTimeMillis; //하이버네이트가 최댓값은 누적으로만 준다. 윈도우가 아니라 시작부터의 최댓값
+        private final long rows;
+        private final long cacheHits;
+        private final long cacheMisses;
+
+        QueryCounts(QueryStatistics statistics) {
+            this(statistics.getExecutionCount(), statistics.getExecutionTotalTime(), statistics.getExecutionMaxTime(),
+                    statistics.getExecutionRowCount(), statistics.getCacheHitCount(), statistics.getCacheMissCount());
+        }
+
+        private QueryCounts(long executions, long totalTimeMillis, long maxTimeMillis, long rows, long cacheHits, long cacheMisses) {
+            this.executions = executions;
+            this.totalTimeMillis = totalTimeMillis;
+            this.maxTimeMillis = maxTimeMillis;
+            this.rows = rows;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+
+        QueryCounts minus(QueryCounts p) {
+            return new QueryCounts(delta(executions, p.executions), delta(totalTimeMillis, p.totalTimeMillis),
+                    maxTimeMillis, delta(rows, p.rows), delta(cacheHits, p.cacheHits), delta(cacheMisses, p.cacheMisses));
+        }
+
+        boolean isEmpty() {
+            return executions + cacheHits + cacheMisses == 0;
+        }
+    }
+
+    @Getter
+    public static class RegionCounts {
+
+        static final RegionCounts ZERO = new RegionCounts(0, 0, 0);
+
+        private final long hits;
+        private final long misses;
+        private final long puts;
+
+        RegionCounts(CacheRegionStatistics statistics) {
+            this(statistics.getHitCount(), statistics.getMissCount(), statistics.getPutCount());
+        }
+
+        private RegionCounts(long hits, long misses, long puts) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+        }
+
+        RegionCounts minus(RegionCounts p) {
+            return new RegionCounts(delta(hits, p.hits), delta(misses, p.misses), delta(puts, p.puts));
+        }
+
+        boolean isEmpty() {
+            return hits + misses + puts == 0;
+        }
+    }
+}
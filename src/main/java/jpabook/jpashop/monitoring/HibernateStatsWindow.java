@@ -0,0 +1,60 @@
+package jpabook.jpashop.monitoring;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 하이버네이트 통계를 window-ms 단위로 끊어서 본다.
+ * window-ms마다 스냅샷을 하나 떠 두고, 직전 두 스냅샷의 차이를 마지막 윈도우로 들고 있는다.
+ * 누적값을 읽기만 하고 Statistics.clear()는 하지 않기 때문에 /internal/cache/stats의 누적값도 그대로다.
+ */
+@Component
+public class HibernateStatsWindow {
+
+    private final SessionFactory sessionFactory;
+    private final Statistics statistics;
+
+    private volatile HibernateStatsSnapshot windowStart;
+    private volatile HibernateStatsSnapshot lastWindow;
+
+    public HibernateStatsWindow(EntityManagerFactory emf) {
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+        this.statistics = sessionFactory.getStatistics();
+        this.windowStart = HibernateStatsSnapshot.take(statistics);
+    }
+
+    @Scheduled(initialDelayString = "${jpashop.hibernate-stats.window-ms:60000}",
+            fixedRateString = "${jpashop.hibernate-stats.window-ms:60000}")
+    public synchronized void roll() {
+        HibernateStatsSnapshot now = HibernateStatsSnapshot.take(statistics);
+        lastWindow = now.minus(windowStart);
+        windowStart = now;
+    }
+
+    /**
+     * 마지막으로 닫힌 윈도우. 첫 윈도우가 닫히기 전이면 지금까지 진행 중인 윈도우
+     */
+    public HibernateStatsSnapshot last() {
+        HibernateStatsSnapshot last = lastWindow;
+        return last == null ? current() : last;
+    }
+
+    /**
+     * 지금 진행 중인 윈도우 (마지막 roll 이후 ~ 지금)
+     */
+    public HibernateStatsSnapshot current() {
+        return HibernateStatsSnapshot.take(statistics).minus(windowStart);
+    }
+
+    public boolean isEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    public int getBatchFetchSize() {
+        return sessionFactory.getSessionFactoryOptions().getDefaultBatchFetchSize();
+    }
+}
@@ -0,0 +1,43 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청 하나 동안 실행된 SQL 집계. 요청 스레드 하나에서만 쓰기 때문에 동기화하지 않는다.
+ */
+public class RequestSqlStats {
+
+    private int statements;
+    private long elapsedNanos;
+    private long rows;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    void addStatement(String sql, long timeElapsedNanos) {
+        statements++;
+        elapsedNanos += timeElapsedNanos;
+        if (sql != null) {
+            shapes.merge(SqlShape.of(sql), 1, Integer::sum);
+        }
+    }
+
+    void addRow() {
+        rows++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public Map<String, Integer> getShapes() {
+        return shapes;
+    }
+}
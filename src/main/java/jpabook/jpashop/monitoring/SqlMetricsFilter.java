@@ -0,0 +1,50 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 SQL 집계를 시작하고, 끝나면 엔드포인트 단위로 합친다.
+ * 엔드포인트는 매핑된 URL 패턴으로 묶는다.(/api/v1/members/{id} 처럼 경로 변수가 있어도 하나로 본다)
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private static final String METRICS_PATH = "/internal/metrics/";
+
+    private final SqlStatementCollector collector;
+    private final SqlMetricsRegistry registry;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(METRICS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestSqlStats stats = collector.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            collector.end();
+            if (stats.getStatements() > 0) {
+                registry.record(endpoint(request), stats);
+            }
+        }
+    }
+
+    private String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+}
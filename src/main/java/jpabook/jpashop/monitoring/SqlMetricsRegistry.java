@@ -0,0 +1,44 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 엔드포인트별 SQL 집계 저장소
+ */
+@Slf4j
+@Component
+public class SqlMetricsRegistry {
+
+    private final Map<String, EndpointSqlStats> endpoints = new ConcurrentHashMap<>();
+
+    //한 요청에서 같은 모양의 SQL이 이 횟수 이상 나가면 N+1로 본다.
+    @Value("${jpashop.sql-metrics.n-plus-one-threshold:5}")
+    private int nPlusOneThreshold;
+
+    public void record(String endpoint, RequestSqlStats request) {
+        endpoints.computeIfAbsent(endpoint, EndpointSqlStats::new).record(request, nPlusOneThreshold);
+
+        if (log.isWarnEnabled()) {
+            request.getShapes().forEach((sql, count) -> {
+                if (count >= nPlusOneThreshold) {
+                    log.warn("N+1 의심 endpoint={}, repeats={}, sql={}", endpoint, count, sql);
+                }
+            });
+        }
+    }
+
+    public List<EndpointSqlStats> findAll() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.regex.Pattern;
+
+/**
+ * SQL에서 값만 지워서 모양(shape)만 남긴다. 파라미터만 다른 같은 쿼리는 같은 shape가 된다.
+ * 배치 페치처럼 in 절의 ? 개수가 달라지는 경우도 하나로 본다.
+ * 주석(use_sql_comments로 붙는 블록 주석, -- 한 줄 주석)도 지운다.
+ */
+final class SqlShape {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|--[^\\r\\n]*", Pattern.DOTALL);
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlShape() {
+    }
+
+    static String of(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?"); //문자열 안의 --, /*는 주석이 아니다.
+        shape = COMMENT.matcher(shape).replaceAll(" ");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+    }
+}
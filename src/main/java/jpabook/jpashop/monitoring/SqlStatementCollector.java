@@ -0,0 +1,45 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 이벤트를 받아서 현재 요청의 RequestSqlStats에 쌓는다.
+ * JdbcEventListener 빈으로 등록하면 p6spy-spring-boot-starter가 알아서 붙여준다.
+ * 요청 밖(스케줄러, 배치 등)에서 실행된 SQL은 집계하지 않는다.
+ */
+@Component
+public class SqlStatementCollector extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT = new ThreadLocal<>();
+
+    public RequestSqlStats begin() {
+        RequestSqlStats stats = new RequestSqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        RequestSqlStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.addStatement(statementInformation.getSql(), timeElapsedNanos);
+        }
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        RequestSqlStats stats = CURRENT.get();
+        if (stats != null && hasNext) {
+            stats.addRow();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    private final EntityManager em;
+
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    /**
+     * 카테고리 하위 트리 전체(자기 자신 포함)에 속한 상품
+     * 트리 깊이와 상관없이 path 인덱스 범위 조회 한 번이다. 여러 하위 카테고리에 걸친 상품도 한 번만 나온다.
+     */
+    public List<Item> findItemsInSubtree(String path, int offset, int limit) {
+        return em.createQuery(
+                "select i from Item i" +
+                        " where i.id in (" +
+                        "   select ci.id from Category c join c.items ci" +
+                        "   where c.path like :path)" +
+                        " order by i.id", Item.class)
+                .setParameter("path", path + "%")
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //하위 트리를 다른 부모 아래로 옮길 때 자손들의 경로 앞부분을 한 번에 바꾼다.
+    public int movePaths(String oldPath, String newPath) {
+        return em.createQuery("update Category c" +
+                " set c.path = concat(:newPath, substring(c.path, :from))" +
+                " where c.path like :oldPrefix and c.path <> :oldPath")
+                .setParameter("newPath", newPath)
+                .setParameter("from", oldPath.length() + 1)
+                .setParameter("oldPrefix", oldPath + "%")
+                .setParameter("oldPath", oldPath)
+                .executeUpdate();
+    }
+}
@@ -2,6 +2,7 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
@@ -25,8 +26,30 @@ public class ItemRepository {
         return em.find(Item.class,id);
     }
 
+    //상품 목록/주문 화면마다 호출되기 때문에 쿼리 캐시를 쓴다. item 테이블이 바뀌면 자동으로 무효화된다.
     public List<Item> findAll() {
         return em.createQuery("select i from Item i",Item.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
                 .getResultList();
     }
+
+    //재고를 읽지 않고 DB에서 바로 더하거나 뺀다. (delta가 음수면 차감)
+    //엔티티로 수정 중인 쪽이 충돌을 알 수 있도록 version도 올린다.
+    public int updateStockQuantity(Long itemId, int delta) {
+        return em.createQuery("update Item i set i.stockQuantity = i.stockQuantity + :delta, i.version = i.version + 1" +
+                        " where i.id = :itemId")
+                .setParameter("delta", delta)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    //조건부 차감: 재고가 충분할 때만 한 문장으로 차감한다.
+    //읽고-계산하고-쓰는 사이에 끼어들 틈이 없어서 동시에 주문해도 재고가 음수가 되지 않는다. 0이 리턴되면 재고 부족
+    public int removeStock(Long itemId, int count) {
+        return em.createQuery("update Item i set i.stockQuantity = i.stockQuantity - :count, i.version = i.version + 1" +
+                        " where i.id = :itemId and i.stockQuantity >= :count")
+                .setParameter("count", count)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
 }
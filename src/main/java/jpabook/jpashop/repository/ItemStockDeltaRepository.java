@@ -0,0 +1,45 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.ItemStockDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ItemStockDeltaRepository {
+
+    private final EntityManager em;
+
+    public void save(ItemStockDelta delta) {
+        em.persist(delta);
+    }
+
+    //오래된 것부터 limit건
+    public List<ItemStockDelta> findPending(int limit) {
+        return em.createQuery("select d from ItemStockDelta d order by d.id", ItemStockDelta.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public int deleteByIds(List<Long> ids) {
+        return em.createQuery("delete from ItemStockDelta d where d.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    //item 재고 + 아직 반영 안 된 저널 합계 = 실제 남은 재고
+    //flush와 엇갈리지 않도록 한 쿼리로 읽는다.
+    public Integer findAvailableStock(Long itemId) {
+        List<?> result = em.createQuery(
+                "select i.stockQuantity + coalesce((select sum(d.delta) from ItemStockDelta d where d.itemId = i.id), 0)" +
+                        " from Item i" +
+                        " where i.id = :itemId")
+                .setParameter("itemId", itemId)
+                .getResultList();
+        //sum()은 Long으로 나오기 때문에 Number로 받아서 변환
+        return result.isEmpty() ? null : ((Number) result.get(0)).intValue();
+    }
+}
@@ -0,0 +1,183 @@
+package jpabook.jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 가입된 회원 이름 Bloom filter (메모리)
+ *
+ * mightContain()이 false면 그 이름은 확실히 없다. 그래서 회원 가입 때 중복 확인 쿼리를 건너뛸 수 있다.
+ * true면 있을 수도 있다는 뜻이라(오탐 false-positive-rate) 원래대로 조회해서 확인한다.
+ * 지울 수 없는 자료구조라 이름을 바꿔도 예전 이름은 남는다. 오탐이 조금 늘 뿐 틀린 답은 아니다.
+ *
+ * 시작할 때 회원 테이블을 읽어서 만들고, 가입/이름 변경은 커밋된 뒤에 반영한다.
+ * 다 만들어지기 전에는 항상 true라서 매번 조회한다.
+ * 필터가 놓친 경우(다른 서버에서 가입, 동시 가입 등)는 member.name unique 제약이 막는다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberNameFilter {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final EntityManager em;
+
+    @Value("${jpashop.member-name-filter.enabled:true}")
+    private boolean enabled;
+    @Value("${jpashop.member-name-filter.expected-names:1000000}")
+    private long expectedNames;
+    @Value("${jpashop.member-name-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile Bits bits; //null이면 아직 준비 안 됨
+    private volatile Bits loading; //rebuild 중에 들어온 이름도 새 필터에 넣는다.
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * 회원 테이블 전체로 다시 만든다. 회원이 expected-names의 절반을 넘으면 두 배 크기로 만든다.
+     * 꺼져 있으면(enabled=false) 만들지 않고 가입할 때마다 조회한다.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        long members = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+        Bits next = new Bits(Math.max(expectedNames, members * 2), falsePositiveRate);
+        loading = next;
+
+        Long lastId = 0L;
+        while (true) {
+            List<Object[]> page = em.createQuery(
+                    "select m.id, m.name from Member m where m.id > :lastId order by m.id", Object[].class)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(LOAD_PAGE_SIZE)
+                    .getResultList();
+            for (Object[] row : page) {
+                next.add((String) row[1]);
+                lastId = (Long) row[0];
+            }
+            if (page.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+        }
+        bits = next;
+        loading = null;
+        log.info("member name filter loaded. members={}, bits={}, hashes={}, {}ms", members, next.size, next.hashes,
+                System.currentTimeMillis() - begin);
+    }
+
+    /**
+     * 회원 가입/이름 변경. 트랜잭션 안이면 커밋된 뒤에 반영한다.
+     */
+    public void put(String name) {
+        if (name == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(name);
+                }
+            });
+        } else {
+            add(name);
+        }
+    }
+
+    /**
+     * 이미 있는 이름일 수 있으면 true. false면 확실히 없는 이름
+     */
+    public boolean mightContain(String name) {
+        if (name == null) {
+            return false; //null 이름은 중복으로 보지 않는다.(unique 제약도 null은 여러 개 허용)
+        }
+        Bits current = bits;
+        return current == null || current.mightContain(name);
+    }
+
+    private void add(String name) {
+        Bits current = bits;
+        if (current != null) {
+            current.add(name);
+        }
+        Bits next = loading;
+        if (next != null) {
+            next.add(name);
+        }
+    }
+
+    /**
+     * 비트 배열. 해시 두 개(h1 + i * h2)로 hashes개의 위치를 만든다. (Kirsch-Mitzenmacher)
+     */
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+
+        Bits(long expected, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long bitCount = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitCount + 63) >>> 6));
+            words = new AtomicLongArray(wordCount);
+            size = (long) wordCount * Long.SIZE;
+            hashes = Math.max(1, (int) Math.round((double) size / expected * ln2));
+        }
+
+        void add(String name) {
+            long hash = hash(name);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+                long mask = 1L << bit;
+                words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+            }
+        }
+
+        boolean mightContain(String name) {
+            long hash = hash(name);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        //FNV-1a 64비트 + murmur3 finalizer(비트를 골고루 섞는다)
+        private static long hash(String name) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < name.length(); i++) {
+                h ^= name.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
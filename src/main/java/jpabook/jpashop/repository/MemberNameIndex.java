@@ -0,0 +1,212 @@
+package jpabook.jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 회원 이름 trigram(3글자 조각) 인덱스 (메모리)
+ *
+ * like '%name%'은 앞에 %가 붙어서 DB 인덱스를 못 탄다. 그래서 이름을 3글자 조각으로 잘라서 조각 -> 회원 id를 들고 있다가
+ * 검색어의 조각들을 모두 가진 회원만 골라낸다. 조각이 다 있어도 순서가 다를 수 있으니 마지막에 실제 이름으로 한 번 더 확인한다.
+ * 검색어가 3글자보다 짧으면 조각을 못 만드니까 들고 있는 이름을 직접 훑는다.(그래도 DB 풀스캔보다는 훨씬 싸다)
+ *
+ * 시작할 때 회원 테이블을 읽어서 만들고, 가입/이름 변경(MemberService)은 커밋된 뒤에 반영한다.
+ * 인덱스는 성능용이라 결과를 장담할 수 없을 때는 candidates()가 null을 돌려주고 호출하는 쪽은 원래대로 like 검색을 한다.
+ * - 다 만들어지기 전
+ * - 인덱스가 모르는 회원이 있을 때 (em.persist, 다른 서버, SQL로 넣은 회원)
+ *   DB의 회원 수와 max(member_id)를 인덱스와 비교한다. id는 pooled 시퀀스(allocationSize 100)라 큰 id가 먼저 들어갈 수 있어서
+ *   max만으로는 모자라고 수도 같이 본다. 다른 경로로 넣고 지운 수가 같고 max도 안 넘는 경우까지는 못 잡는다.
+ * 다른 경로로 이름만 바꾼 회원도 알아챌 수 없으니 그런 작업 뒤에는 rebuild()를 불러준다.
+ * 인덱스를 믿을 수 있을 때 빈 결과는 "그런 회원 없음"이다.
+ * like와 똑같이 대소문자를 구분한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberNameIndex {
+
+    private static final int GRAM = 3;
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final EntityManager em;
+
+    private volatile Index index; //null이면 아직 준비 안 됨
+    private volatile Index loading; //rebuild 중에 들어온 가입/이름 변경도 새 인덱스에 넣는다.
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * 회원 테이블 전체로 다시 만든다. (JDBC로 회원을 직접 넣은 뒤 등)
+     * 새 인덱스를 옆에서 다 만든 뒤에 바꿔 끼우기 때문에 그동안 검색은 이전 인덱스를 그대로 쓴다.
+     */
+    public synchronized void rebuild() {
+        long begin = System.currentTimeMillis();
+        Index next = new Index();
+        loading = next;
+
+        Long lastId = 0L;
+        while (true) {
+            List<Object[]> page = em.createQuery(
+                    "select m.id, m.name from Member m where m.id > :lastId order by m.id", Object[].class)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(LOAD_PAGE_SIZE)
+                    .getResultList();
+            for (Object[] row : page) {
+                next.update((Long) row[0], (String) row[1]);
+                lastId = (Long) row[0];
+            }
+            if (page.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+        }
+        index = next;
+        loading = null;
+        log.info("member name index loaded. members={}, grams={}, {}ms", next.names.size(), next.postings.size(),
+                System.currentTimeMillis() - begin);
+    }
+
+    /**
+     * 회원 가입/이름 변경. 트랜잭션 안이면 커밋된 뒤에 반영한다.(롤백된 이름이 검색되면 안 되니까)
+     */
+    public void put(Long memberId, String name) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(memberId, name);
+                }
+            });
+        } else {
+            update(memberId, name);
+        }
+    }
+
+    /**
+     * 이름에 query가 들어있는 회원 id
+     * 인덱스를 믿을 수 없으면(준비 전, 인덱스가 모르는 회원이 있음) null
+     */
+    public Set<Long> candidates(String query) {
+        Index current = index;
+        if (current == null) {
+            return null;
+        }
+        //count(*)와 PK 인덱스 끝만 보면 되니까 싸다.
+        Object[] stats = em.createQuery("select count(m), max(m.id) from Member m", Object[].class).getSingleResult();
+        long count = (Long) stats[0];
+        Long maxId = (Long) stats[1];
+        if (count != current.names.size() || (maxId != null && maxId > current.maxId.get())) {
+            return null;
+        }
+        return current.candidates(query);
+    }
+
+    private synchronized void update(Long memberId, String name) {
+        Index current = index;
+        if (current != null) {
+            current.update(memberId, name);
+        }
+        Index next = loading;
+        if (next != null) {
+            next.update(memberId, name);
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * 회원 id -> 이름, 조각 -> 회원 id. 쓰기는 MemberNameIndex가 synchronized로 한 번에 하나씩만 한다.
+     */
+    private static final class Index {
+
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        private final AtomicLong maxId = new AtomicLong();
+
+        Set<Long> candidates(String query) {
+            if (query.length() < GRAM) {
+                return scan(query);
+            }
+
+            List<Set<Long>> sets = new ArrayList<>();
+            for (String gram : grams(query)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Collections.emptySet();
+                }
+                sets.add(ids);
+            }
+            sets.sort((a, b) -> Integer.compare(a.size(), b.size())); //제일 작은 집합부터 걸러낸다.
+
+            Set<Long> result = new HashSet<>();
+            for (Long id : sets.get(0)) {
+                if (containsAll(sets, id)) {
+                    String name = names.get(id);
+                    if (name != null && name.contains(query)) {
+                        result.add(id);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private boolean containsAll(List<Set<Long>> sets, Long id) {
+            for (int i = 1; i < sets.size(); i++) {
+                if (!sets.get(i).contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Set<Long> scan(String query) {
+            return names.entrySet().stream()
+                    .filter(e -> e.getValue().contains(query))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+        }
+
+        void update(Long memberId, String name) {
+            maxId.accumulateAndGet(memberId, Math::max);
+            //이름이 없는 회원도 회원 수에는 들어가야 하니까 빈 문자열로 들고 있는다.
+            String before = names.put(memberId, name == null ? "" : name);
+            if (before != null) {
+                for (String gram : grams(before)) {
+                    Set<Long> ids = postings.get(gram);
+                    if (ids != null) {
+                        ids.remove(memberId);
+                    }
+                }
+            }
+            if (name != null) {
+                for (String gram : grams(name)) {
+                    postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(memberId);
+                }
+            }
+        }
+    }
+}
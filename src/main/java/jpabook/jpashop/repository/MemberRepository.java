@@ -2,6 +2,7 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -25,12 +26,18 @@ public class MemberRepository {
         em.persist(member);
     }
 
+    //insert/update를 바로 내보낸다. 이름 unique 제약 위반이 커밋 때가 아니라 여기서 DataIntegrityViolationException으로 나온다.
+    public void flush() {
+        em.flush();
+    }
+
     public Member findOne(Long id) {
         return em.find(Member.class,id);
     }
 
     public List<Member> findAll() {
         return em.createQuery("select m from Member m",Member.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true) //쿼리 캐시
                 .getResultList();
     }
 
@@ -0,0 +1,75 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.ArchivedOrder;
+import jpabook.jpashop.domain.ArchivedOrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    private final EntityManager em;
+
+    //보관할 주문을 골라서 락을 건다. 옮기는 동안 취소 등이 끼어들지 않게.
+    //or로 묶으면 인덱스를 못 타니까 취소된 주문(idx_orders_status)과 오래된 주문(idx_orders_order_date_id)을 따로 고른다.
+    public List<Long> lockCanceledIds(int limit) {
+        return em.createQuery("select o.id from Order o where o.status = :cancel", Long.class)
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    public List<Long> lockExpiredIds(LocalDateTime cutoff, int limit) {
+        return em.createQuery("select o.id from Order o" +
+                        " where o.orderDate < :cutoff" +
+                        " order by o.orderDate, o.id", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 주문과 주문상품을 보관 테이블로 복사하고 원본(orders, order_item, order_summary)에서 지운다.
+     * 옮긴 주문상품 수를 돌려준다.
+     */
+    public int moveToArchive(List<Long> orderIds) {
+        em.flush();
+        //네이티브 update는 동기화할 엔티티를 알려주지 않으면 2차 캐시를 전부 비운다.
+        nativeUpdate("insert into orders_archive" +
+                " (order_id, member_id, delivery_id, order_date, status, total_price, item_count, archived_at)" +
+                " select order_id, member_id, delivery_id, order_date, status, total_price, item_count, current_timestamp" +
+                " from orders where order_id in (:orderIds)", ArchivedOrder.class, orderIds);
+        int orderItems = nativeUpdate("insert into order_item_archive (order_item_id, order_id, item_id, order_price, count)" +
+                " select order_item_id, order_id, item_id, order_price, count" +
+                " from order_item where order_id in (:orderIds)", ArchivedOrderItem.class, orderIds);
+
+        delete("delete from OrderItem oi where oi.order.id in :orderIds", orderIds);
+        delete("delete from OrderSummary s where s.id in :orderIds", orderIds);
+        delete("delete from Order o where o.id in :orderIds", orderIds);
+        return orderItems;
+    }
+
+    private int nativeUpdate(String sql, Class<?> entityClass, List<Long> orderIds) {
+        return em.createNativeQuery(sql)
+                .setParameter("orderIds", orderIds)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(entityClass)
+                .executeUpdate();
+    }
+
+    private void delete(String jpql, List<Long> orderIds) {
+        em.createQuery(jpql)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,48 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 키셋(seek) 페이징용 커서
+ * 마지막으로 본 (orderDate, order_id)를 기억해두고, 다음 페이지는 그 뒤부터 읽는다.
+ * offset처럼 앞의 row를 전부 읽고 버리지 않기 때문에 몇 번째 페이지든 속도가 같다.
+ */
+@Getter
+public class OrderCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime orderDate;
+    private final Long orderId;
+
+    public OrderCursor(LocalDateTime orderDate, Long orderId) {
+        this.orderDate = orderDate;
+        this.orderId = orderId;
+    }
+
+    //클라이언트에게는 내부 구조를 알 수 없는 토큰으로 내려준다.
+    public String encode() {
+        String raw = orderDate.toString() + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //토큰이 없으면 첫 페이지
+    public static OrderCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.lastIndexOf(SEPARATOR);
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, idx)),
+                    Long.valueOf(raw.substring(idx + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("잘못된 커서입니다.", e);
+        }
+    }
+}
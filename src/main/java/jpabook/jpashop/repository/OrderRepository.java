@@ -1,22 +1,32 @@
 package jpabook.jpashop.repository;
 
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.Criteria;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
 
+    //회원 이름 검색 후보가 이보다 많으면 in 절이 너무 길어지니까 like로 찾는다.
+    private static final int MAX_MEMBER_CANDIDATES = 1000;
+
     private final EntityManager em;
+    private final MemberNameIndex memberNameIndex;
+    private final OrderSearchQueries orderSearchQueries;
 
     public void save(Order order) {
         em.persist(order);
@@ -26,6 +36,43 @@ public class OrderRepository {
         return em.find(Order.class,id);
     }
 
+    //== 대량 취소 ==//
+
+    //취소할 수 있는 주문(주문 상태, 배송 전)만 골라서 행 락을 건다. 동시에 같은 주문을 취소하거나 배송완료로 바꾸지 못하게
+    public List<Long> lockCancelableIds(List<Long> orderIds) {
+        return em.createQuery("select o.id from Order o join o.delivery d" +
+                        " where o.id in :orderIds" +
+                        " and o.status = :status" +
+                        " and d.status <> :comp", Long.class)
+                .setParameter("orderIds", orderIds)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery("update Order o set o.status = :status where o.id in :orderIds")
+                .setParameter("status", OrderStatus.CANCEL)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    //주문들의 상품별 수량 합계. [itemId, sum(count)]
+    public List<Object[]> sumCountByItem(List<Long> orderIds) {
+        return em.createQuery("select oi.item.id, sum(oi.count) from OrderItem oi" +
+                        " where oi.order.id in :orderIds" +
+                        " group by oi.item.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    //대량 처리할 때 쌓인 insert를 내보내고 영속성 컨텍스트를 비운다.
+    public void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
 //    //동적 쿼리가 필요한 부분
 //    public List<Order> findAll(OrderSearch orderSearch){
 //        em.createQuery("select o from Order o join o.member m"
@@ -90,18 +137,97 @@ public class OrderRepository {
         }
 
         //회원 이름 검색
+        //like '%name%'은 인덱스를 못 타니까 trigram 인덱스로 회원 id 후보를 먼저 구해서 member_id in (...)으로 찾는다.
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            Predicate name = cb.like(m.<String>get("name"),"%" + orderSearch.getMemberName()+"%");
-            criteria.add(name);
+            //인덱스를 믿을 수 없으면 candidates()가 null이고 그때만 like로 찾는다.
+            Set<Long> memberIds = memberNameIndex.candidates(orderSearch.getMemberName());
+            if (memberIds != null && memberIds.isEmpty()) {
+                return Collections.emptyList(); //그런 이름의 회원이 없으면 주문을 조회할 필요도 없다.
+            }
+            if (memberIds != null && memberIds.size() <= MAX_MEMBER_CANDIDATES) {
+                criteria.add(o.get("member").get("id").in(memberIds));
+            } else {
+                Predicate name = cb.like(m.<String>get("name"),"%" + orderSearch.getMemberName()+"%");
+                criteria.add(name);
+            }
+        }
+
+        //주문금액 검색(orders.total_price만 보고 order_item은 건드리지 않는다)
+        if (orderSearch.getMinTotalPrice() != null) {
+            criteria.add(cb.ge(o.<Integer>get("totalPrice"), orderSearch.getMinTotalPrice()));
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            criteria.add(cb.le(o.<Integer>get("totalPrice"), orderSearch.getMaxTotalPrice()));
         }
 
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
+
+        //정렬
+        if (orderSearch.getSort() != null) {
+            switch (orderSearch.getSort()) {
+                case LATEST:
+                    cq.orderBy(cb.desc(o.get("orderDate")), cb.desc(o.get("id")));
+                    break;
+                case TOTAL_PRICE_DESC:
+                    cq.orderBy(cb.desc(o.get("totalPrice")), cb.desc(o.get("id")));
+                    break;
+                case TOTAL_PRICE_ASC:
+                    cq.orderBy(cb.asc(o.get("totalPrice")), cb.asc(o.get("id")));
+                    break;
+            }
+        }
         TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
         return query.getResultList();
     }
 
 
 
+    //미리 등록해둔 named query 중 조건에 맞는 것을 골라 파라미터만 바인딩한다.(OrderSearchQueries)
+    //결과는 findAllByCriteria와 같다.
+    public List<Order> findAllByNamedQuery(OrderSearch orderSearch) {
+        int flags = 0;
+        Set<Long> memberIds = null;
+        if (orderSearch.getOrderStatus() != null) {
+            flags |= OrderSearchQueries.STATUS;
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            memberIds = memberNameIndex.candidates(orderSearch.getMemberName());
+            if (memberIds != null && memberIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            if (memberIds != null && memberIds.size() <= MAX_MEMBER_CANDIDATES) {
+                flags |= OrderSearchQueries.MEMBER_IDS;
+            } else {
+                flags |= OrderSearchQueries.NAME_LIKE;
+            }
+        }
+        if (orderSearch.getMinTotalPrice() != null) {
+            flags |= OrderSearchQueries.MIN_TOTAL_PRICE;
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            flags |= OrderSearchQueries.MAX_TOTAL_PRICE;
+        }
+
+        TypedQuery<Order> query = orderSearchQueries.create(flags, orderSearch.getSort())
+                .setMaxResults(1000); //최대 1000건
+        if ((flags & OrderSearchQueries.STATUS) != 0) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if ((flags & OrderSearchQueries.MEMBER_IDS) != 0) {
+            query.setParameter("memberIds", memberIds);
+        }
+        if ((flags & OrderSearchQueries.NAME_LIKE) != 0) {
+            query.setParameter("name", "%" + orderSearch.getMemberName() + "%");
+        }
+        if ((flags & OrderSearchQueries.MIN_TOTAL_PRICE) != 0) {
+            query.setParameter("minTotalPrice", orderSearch.getMinTotalPrice());
+        }
+        if ((flags & OrderSearchQueries.MAX_TOTAL_PRICE) != 0) {
+            query.setParameter("maxTotalPrice", orderSearch.getMaxTotalPrice());
+        }
+        return query.getResultList();
+    }
+
     public List<Order> findAllWithMemberDelivery() {
 
         return em.createQuery(
@@ -162,4 +288,26 @@ public class OrderRepository {
                 .getResultList();
     }
 
+    //키셋 페이징: offset 대신 마지막으로 본 (orderDate, id) 다음부터 limit건을 가져온다.
+    //(order_date, order_id) 인덱스를 타기 때문에 뒤쪽 페이지도 첫 페이지와 비용이 같다.
+    public List<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (cursor != null) {
+            //앞의 o.orderDate >= 조건이 있어야 인덱스를 cursor 위치부터 range scan 한다. or만 있으면 처음부터 훑는다.
+            jpql += " where o.orderDate >= :orderDate" +
+                    " and (o.orderDate > :orderDate or o.id > :orderId)";
+        }
+        jpql += " order by o.orderDate, o.id";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.getResultList();
+    }
+
 }
@@ -9,4 +9,7 @@ import lombok.Setter;
 public class OrderSearch {
     private String memberName;//회원 이름
     private OrderStatus orderStatus; //주문 상태[ORDER,CANCEL]
+    private Integer minTotalPrice; //주문금액 이상
+    private Integer maxTotalPrice; //주문금액 이하
+    private OrderSort sort; //정렬
 }
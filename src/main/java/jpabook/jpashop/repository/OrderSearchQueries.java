@@ -0,0 +1,116 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문 검색(OrderSearch) 조건 조합별로 JPQL을 미리 만들어서 named query로 등록해둔다.
+ *
+ * 검색 조건은 있다/없다 뿐이라 조합 수가 정해져 있다. (이름 조건 3가지 x 나머지 조건 3개 on/off x 정렬 4가지 = 96개)
+ * 문자열을 이어 붙이거나 Criteria를 매번 새로 만들면 요청마다 JPQL 생성/파싱 비용이 들고, 조건 값이 JPQL에 섞이면
+ * 쿼리 플랜 캐시에 비슷한 쿼리가 계속 쌓인다. 여기서는 시작할 때 한 번 파싱해서 등록하고 요청마다 파라미터만 바꿔 쓴다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSearchQueries {
+
+    //조건 플래그
+    public static final int STATUS = 1;
+    public static final int NAME_LIKE = 1 << 1;
+    public static final int MEMBER_IDS = 1 << 2;
+    public static final int MIN_TOTAL_PRICE = 1 << 3;
+    public static final int MAX_TOTAL_PRICE = 1 << 4;
+    private static final int ALL_FLAGS = 1 << 5;
+
+    private static final String PREFIX = "Order.search.";
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+
+    @PostConstruct
+    public void register() {
+        long begin = System.currentTimeMillis();
+        int count = 0;
+        //등록할 때 쓴 EntityManager는 바로 닫는다.(등록된 쿼리 정의는 EntityManagerFactory가 들고 있다)
+        EntityManager registrar = emf.createEntityManager();
+        try {
+            for (int flags = 0; flags < ALL_FLAGS; flags++) {
+                if ((flags & NAME_LIKE) != 0 && (flags & MEMBER_IDS) != 0) {
+                    continue; //이름은 둘 중 하나로만 찾는다.
+                }
+                for (OrderSort sort : sorts()) {
+                    emf.addNamedQuery(name(flags, sort), registrar.createQuery(jpql(flags, sort), Order.class));
+                    count++;
+                }
+            }
+        } finally {
+            registrar.close();
+        }
+        log.info("order search named queries registered. count={}, {}ms", count, System.currentTimeMillis() - begin);
+    }
+
+    public TypedQuery<Order> create(int flags, OrderSort sort) {
+        return em.createNamedQuery(name(flags, sort), Order.class);
+    }
+
+    private static String name(int flags, OrderSort sort) {
+        return PREFIX + flags + "." + (sort == null ? "NONE" : sort.name());
+    }
+
+    private static List<OrderSort> sorts() {
+        List<OrderSort> sorts = new ArrayList<>();
+        sorts.add(null);
+        for (OrderSort sort : OrderSort.values()) {
+            sorts.add(sort);
+        }
+        return sorts;
+    }
+
+    static String jpql(int flags, OrderSort sort) {
+        List<String> where = new ArrayList<>();
+        if ((flags & STATUS) != 0) {
+            where.add("o.status = :status");
+        }
+        if ((flags & NAME_LIKE) != 0) {
+            where.add("m.name like :name");
+        }
+        if ((flags & MEMBER_IDS) != 0) {
+            where.add("o.member.id in :memberIds");
+        }
+        if ((flags & MIN_TOTAL_PRICE) != 0) {
+            where.add("o.totalPrice >= :minTotalPrice");
+        }
+        if ((flags & MAX_TOTAL_PRICE) != 0) {
+            where.add("o.totalPrice <= :maxTotalPrice");
+        }
+
+        String jpql = "select o from Order o join o.member m";
+        if (!where.isEmpty()) {
+            jpql += " where " + String.join(" and ", where);
+        }
+        if (sort != null) {
+            switch (sort) {
+                case LATEST:
+                    jpql += " order by o.orderDate desc, o.id desc";
+                    break;
+                case TOTAL_PRICE_DESC:
+                    jpql += " order by o.totalPrice desc, o.id desc";
+                    break;
+                case TOTAL_PRICE_ASC:
+                    jpql += " order by o.totalPrice asc, o.id asc";
+                    break;
+            }
+        }
+        return jpql;
+    }
+}
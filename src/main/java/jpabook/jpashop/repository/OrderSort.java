@@ -0,0 +1,8 @@
+package jpabook.jpashop.repository;
+
+//주문 목록 정렬 기준. 선택하지 않으면(null) 정렬하지 않는다.
+public enum OrderSort {
+    LATEST, //최근 주문순
+    TOTAL_PRICE_DESC, //주문금액 높은순
+    TOTAL_PRICE_ASC //주문금액 낮은순
+}
@@ -0,0 +1,68 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 부모-자식을 조인해서 한 줄씩 펼쳐진(flat) 결과를 부모 DTO 안에 자식 DTO 목록이 들어간 모양으로 다시 묶는다.
+ *
+ * 행이 부모 키 순서대로(order by o.id) 정렬되어 있어야 한다. 키가 바뀌는 순간 이전 부모는 완성된 것이라 바로 넘겨준다.
+ * 그래서 groupingBy처럼 Map이나 임시 키 객체를 만들 필요가 없고, 결과 순서도 쿼리 순서 그대로다.
+ * 부모 하나만 들고 있으면 되니까 스트리밍(getResultStream)에도 그대로 쓸 수 있다.
+ *
+ * @param <R> 행(flat DTO)
+ * @param <K> 부모 키
+ * @param <P> 부모 DTO
+ * @param <C> 자식 DTO
+ */
+public class FlatTreeAssembler<R, K, P, C> {
+
+    private final Function<R, K> parentKey;
+    private final Function<R, P> parent;
+    private final Function<R, C> child;
+    private final BiConsumer<P, C> addChild;
+
+    /**
+     * @param parentKey 행에서 부모 키 꺼내기
+     * @param parent    부모의 첫 행으로 부모 DTO 만들기(자식 목록은 비어 있어야 한다)
+     * @param child     행으로 자식 DTO 만들기
+     * @param addChild  부모에 자식 추가
+     */
+    public FlatTreeAssembler(Function<R, K> parentKey, Function<R, P> parent, Function<R, C> child, BiConsumer<P, C> addChild) {
+        this.parentKey = parentKey;
+        this.parent = parent;
+        this.child = child;
+        this.addChild = addChild;
+    }
+
+    public List<P> assemble(List<R> rows) {
+        List<P> result = new ArrayList<>();
+        assemble(rows.iterator(), result::add);
+        return result;
+    }
+
+    public void assemble(Iterator<R> rows, Consumer<P> consumer) {
+        P current = null;
+        K currentKey = null;
+        while (rows.hasNext()) {
+            R row = rows.next();
+            K key = parentKey.apply(row);
+            if (current == null || !Objects.equals(currentKey, key)) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = parent.apply(row);
+                currentKey = key;
+            }
+            addChild.accept(current, child.apply(row));
+        }
+        if (current != null) {
+            consumer.accept(current);
+        }
+    }
+}
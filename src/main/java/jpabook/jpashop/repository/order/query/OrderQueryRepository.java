@@ -1,17 +1,33 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.OrderCursor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    //OrderFlatDto(주문 x 주문상품) -> OrderQueryDto(주문) + OrderItemQueryDto(주문상품)
+    private static final FlatTreeAssembler<OrderFlatDto, Long, OrderQueryDto, OrderItemQueryDto> ORDER_TREE = new FlatTreeAssembler<>(
+            OrderFlatDto::getOrderId,
+            row -> new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(),
+                    row.getAddress(), new ArrayList<>()),
+            row -> new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()),
+            (order, orderItem) -> order.getOrderItems().add(orderItem));
+
     private final EntityManager em;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
@@ -46,6 +62,34 @@ public class OrderQueryRepository {
                 .getResultList();
     }
 
+    //키셋 페이징 버전. cursor가 null이면 첫 페이지
+    private List<OrderQueryDto> findOrders(OrderCursor cursor, int limit) {
+        String jpql = "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id,m.name,o.orderDate,o.status,d.address)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d";
+        if (cursor != null) {
+            //앞의 o.orderDate >= 조건이 있어야 인덱스를 cursor 위치부터 range scan 한다. or만 있으면 처음부터 훑는다.
+            jpql += " where o.orderDate >= :orderDate" +
+                    " and (o.orderDate > :orderDate or o.id > :orderId)";
+        }
+        jpql += " order by o.orderDate, o.id";
+
+        TypedQuery<OrderQueryDto> query = em.createQuery(jpql, OrderQueryDto.class)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.getResultList();
+    }
+
+    public List<OrderQueryDto> findOrderQueryDtos(OrderCursor cursor, int limit) {
+        List<OrderQueryDto> result = findOrders(cursor, limit);
+        result.forEach(o -> o.setOrderItems(findOrderItems(o.getOrderId())));
+        return result;
+    }
+
 
     public List<OrderQueryDto> findAllByDto_optimization() {
         List<OrderQueryDto> result = findOrders(); //주문 다 가져와서
@@ -59,6 +103,17 @@ public class OrderQueryRepository {
         return result;
     }
 
+    public List<OrderQueryDto> findAllByDto_optimization(OrderCursor cursor, int limit) {
+        List<OrderQueryDto> result = findOrders(cursor, limit);
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderITemMap(toOrderIds(result));
+        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return result;
+    }
+
     private Map<Long, List<OrderItemQueryDto>> findOrderITemMap(List<Long> orderIds) {
         List<OrderItemQueryDto> orderItems = em.createQuery(
                 "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)"+
@@ -91,4 +146,54 @@ public class OrderQueryRepository {
                         " join oi.item i", OrderFlatDto.class)
                 .getResultList();
     }
+
+    //flat 조인 결과를 주문 순서대로 한 번에 훑으면서 주문 단위로 묶는다.(FlatTreeAssembler)
+    public List<OrderQueryDto> findAllByDto_flatTree() {
+        List<OrderFlatDto> rows = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id,m.name,o.orderDate,o.status,d.address,i.name,oi.orderPrice,oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " order by o.id", OrderFlatDto.class)
+                .getResultList();
+        return ORDER_TREE.assemble(rows);
+    }
+
+    //보관된 주문(orders_archive). 기본 조회에는 없고 includeArchived일 때만 뒤에 붙인다.
+    public List<OrderQueryDto> findArchivedByDto() {
+        List<OrderFlatDto> rows = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id,m.name,o.orderDate,o.status,d.address,i.name,oi.orderPrice,oi.count)" +
+                        " from ArchivedOrder o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " order by o.id", OrderFlatDto.class)
+                .getResultList();
+        return ORDER_TREE.assemble(rows);
+    }
+
+    //전체 주문 내보내기용.
+    //findAllByDto_flat()처럼 List에 다 모으지 않고, forward-only 커서로 한 줄씩 읽으면서 주문 단위로 묶어 넘겨준다.
+    //o.id로 정렬되어 있으니 orderId가 바뀌는 순간 이전 주문은 완성된 것이다. 그래서 메모리에는 주문 하나만 들고 있으면 된다.
+    //DTO로 읽으니 영속성 컨텍스트에는 쌓이는 게 없다. 커서가 끝날 때까지 커넥션을 잡고 있어야 하니 트랜잭션은 호출하는 쪽에서 연다.
+    public void streamAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+        Stream<OrderFlatDto> rows = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id,m.name,o.orderDate,o.status,d.address,i.name,oi.orderPrice,oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " order by o.id", OrderFlatDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+
+        try (rows) {
+            ORDER_TREE.assemble(rows.iterator(), consumer);
+        }
+    }
 }
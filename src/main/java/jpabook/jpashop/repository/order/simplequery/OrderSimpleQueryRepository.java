@@ -15,7 +15,7 @@ public class OrderSimpleQueryRepository {
     private final EntityManager em;
 
     public List<OrderSimpleQueryDto> findOrderDtos() {
-        return em.createQuery("select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id,m.name,o.status,o.orderDate,d.address)" +
+        return em.createQuery("select new jpabook.jpashop.repository.OrderSimpleQueryDto(o.id,m.name,o.status,o.orderDate,d.address)" +
                 " from Order o"+
                 " join o.member m"+
                 " join o.delivery d", OrderSimpleQueryDto.class)
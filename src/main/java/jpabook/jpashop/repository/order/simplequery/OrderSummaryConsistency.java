@@ -0,0 +1,24 @@
+package jpabook.jpashop.repository.order.simplequery;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//order_summary와 원본(orders, member, delivery) 비교 결과
+@Data
+public class OrderSummaryConsistency {
+
+    private long sourceCount; //orders 건수
+    private long summaryCount; //order_summary 건수
+    private long missingCount; //order_summary에 없는 주문
+    private long orphanCount; //orders에 없는 order_summary
+    private long mismatchCount; //값이 다른 주문
+    private LocalDateTime latestSourceOrderDate;
+    private LocalDateTime latestSummaryOrderDate;
+    private List<Long> sampleOrderIds; //어긋난 주문 id 일부
+
+    public boolean isConsistent() {
+        return missingCount == 0 && orphanCount == 0 && mismatchCount == 0;
+    }
+}
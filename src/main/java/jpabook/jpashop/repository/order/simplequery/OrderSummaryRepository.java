@@ -0,0 +1,193 @@
+package jpabook.jpashop.repository.order.simplequery;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSimpleQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private static final int SAMPLE_SIZE = 20;
+
+    //원본에서 값이 하나라도 다르면 어긋난 것으로 본다.
+    private static final String SOURCE_JOIN = " from orders o" +
+            " join member m on m.member_id = o.member_id" +
+            " join delivery d on d.delivery_id = o.delivery_id";
+    private static final String MISMATCH = " (s.member_id is distinct from o.member_id" +
+            " or s.member_name is distinct from m.name" +
+            " or s.status is distinct from o.status" +
+            " or s.order_date is distinct from o.order_date" +
+            " or s.city is distinct from d.city" +
+            " or s.street is distinct from d.street" +
+            " or s.zipcode is distinct from d.zipcode" +
+            " or s.total_price <> o.total_price)";
+
+    private final EntityManager em;
+
+    public void save(OrderSummary summary) {
+        em.persist(summary);
+    }
+
+    public OrderSummary findOne(Long orderId) {
+        return em.find(OrderSummary.class, orderId);
+    }
+
+    public int updateStatus(List<Long> orderIds, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.status = :status where s.id in :orderIds")
+                .setParameter("status", status)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    //회원 이름이 바뀌면 그 회원의 주문 요약도 같이 바꾼다.
+    public int updateMemberName(Long memberId, String name) {
+        return em.createQuery("update OrderSummary s set s.memberName = :name where s.memberId = :memberId")
+                .setParameter("name", name)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문 목록 조회(/api/v5/simple-orders). 조인 없이 order_summary만 읽는다.
+     * 회원 이름은 인덱스를 탈 수 있도록 앞에서부터 일치(like 'name%')로 찾는다.
+     */
+    public List<OrderSimpleQueryDto> search(OrderSearch orderSearch, int limit) {
+        List<String> where = new ArrayList<>();
+        if (orderSearch.getOrderStatus() != null) {
+            where.add("s.status = :status");
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            where.add("s.memberName like :name");
+        }
+        if (orderSearch.getMinTotalPrice() != null) {
+            where.add("s.totalPrice >= :minTotalPrice");
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            where.add("s.totalPrice <= :maxTotalPrice");
+        }
+
+        String jpql = "select new jpabook.jpashop.repository.OrderSimpleQueryDto(s.id, s.memberName, s.status, s.orderDate, s.address)" +
+                " from OrderSummary s";
+        if (!where.isEmpty()) {
+            jpql += " where " + String.join(" and ", where);
+        }
+        jpql += orderBy(orderSearch);
+
+        TypedQuery<OrderSimpleQueryDto> query = em.createQuery(jpql, OrderSimpleQueryDto.class)
+                .setMaxResults(limit);
+        if (orderSearch.getOrderStatus() != null) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query.setParameter("name", orderSearch.getMemberName() + "%");
+        }
+        if (orderSearch.getMinTotalPrice() != null) {
+            query.setParameter("minTotalPrice", orderSearch.getMinTotalPrice());
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            query.setParameter("maxTotalPrice", orderSearch.getMaxTotalPrice());
+        }
+        return query.getResultList();
+    }
+
+    private String orderBy(OrderSearch orderSearch) {
+        if (orderSearch.getSort() == null) {
+            return " order by s.orderDate desc, s.id desc";
+        }
+        switch (orderSearch.getSort()) {
+            case TOTAL_PRICE_DESC:
+                return " order by s.totalPrice desc, s.id desc";
+            case TOTAL_PRICE_ASC:
+                return " order by s.totalPrice asc, s.id asc";
+            default:
+                return " order by s.orderDate desc, s.id desc";
+        }
+    }
+
+    //== 재생성 / 정합성 확인 ==//
+
+    /**
+     * 원본 테이블과 비교해서 어긋난 row만 고친다. (orders에 없는 요약 삭제, 값이 다른 요약 update, 빠진 요약 insert)
+     * 전부 지우고 다시 넣으면 그 사이에 커밋된 주문의 요약과 order_id가 겹쳐서 insert가 깨진다.
+     * 빠진 것만 넣어도 아직 커밋 안 된 주문과는 겹칠 수 있으니, 그 경우는 호출하는 쪽에서 다시 시도한다.
+     * 고친 row 수를 돌려준다.
+     */
+    public int rebuild() {
+        em.flush();
+        int deleted = em.createNativeQuery("delete from order_summary s" +
+                " where not exists (select 1 from orders o where o.order_id = s.order_id)")
+                .executeUpdate();
+        int updated = em.createNativeQuery("update order_summary s" +
+                " set (member_id, member_name, status, order_date, city, street, zipcode, total_price) =" +
+                " (select m.member_id, m.name, o.status, o.order_date, d.city, d.street, d.zipcode, o.total_price" +
+                SOURCE_JOIN + " where o.order_id = s.order_id)" +
+                " where exists (select 1" + SOURCE_JOIN + " where o.order_id = s.order_id and" + MISMATCH + ")")
+                .executeUpdate();
+        int inserted = em.createNativeQuery("insert into order_summary" +
+                " (order_id, member_id, member_name, status, order_date, city, street, zipcode, total_price)" +
+                " select o.order_id, m.member_id, m.name, o.status, o.order_date, d.city, d.street, d.zipcode, o.total_price" +
+                SOURCE_JOIN +
+                " where not exists (select 1 from order_summary s where s.order_id = o.order_id)")
+                .executeUpdate();
+        em.clear();
+        return deleted + updated + inserted;
+    }
+
+    public OrderSummaryConsistency checkConsistency() {
+        OrderSummaryConsistency result = new OrderSummaryConsistency();
+        result.setSourceCount(count("select count(*) from orders"));
+        result.setSummaryCount(count("select count(*) from order_summary"));
+        result.setMissingCount(count("select count(*)" + SOURCE_JOIN +
+                " left join order_summary s on s.order_id = o.order_id where s.order_id is null"));
+        result.setOrphanCount(count("select count(*) from order_summary s" +
+                " left join orders o on o.order_id = s.order_id where o.order_id is null"));
+        result.setMismatchCount(count("select count(*)" + SOURCE_JOIN +
+                " join order_summary s on s.order_id = o.order_id where" + MISMATCH));
+        result.setLatestSourceOrderDate(timestamp("select max(order_date) from orders"));
+        result.setLatestSummaryOrderDate(timestamp("select max(order_date) from order_summary"));
+
+        if (!result.isConsistent()) {
+            result.setSampleOrderIds(sampleOrderIds());
+        }
+        return result;
+    }
+
+    private List<Long> sampleOrderIds() {
+        List<?> ids = em.createNativeQuery("select o.order_id" + SOURCE_JOIN +
+                " left join order_summary s on s.order_id = o.order_id" +
+                " where s.order_id is null or" + MISMATCH +
+                " union all select s.order_id from order_summary s" +
+                " left join orders o on o.order_id = s.order_id where o.order_id is null")
+                .setMaxResults(SAMPLE_SIZE)
+                .getResultList();
+        return ids.stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(toList());
+    }
+
+    private long count(String sql) {
+        return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+
+    private LocalDateTime timestamp(String sql) {
+        Object value = em.createNativeQuery(sql).getSingleResult();
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
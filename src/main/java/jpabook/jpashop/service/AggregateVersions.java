@@ -0,0 +1,68 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.datasource.DataSourceRouter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원/상품 목록이 바뀔 때마다 올라가는 버전 번호. 목록 조회의 ETag로 쓴다.
+ *
+ * 버전이 같으면 목록도 같다는 보장이 있어야 하니까 데이터를 바꾸는 쪽은 빠짐없이 bump()를 불러야 한다.
+ * 커밋된 뒤에 올린다. 커밋 전에 올리면 다른 요청이 새 버전으로 예전 데이터를 캐시할 수 있다.
+ * 레플리카를 쓰면 ETag를 만든 요청의 읽기는 primary로 간다. (DataSourceRouter.pinRequestToPrimary)
+ * 메모리 값이라 재시작하면 처음부터 다시 세는데, 시작 시각을 ETag에 같이 넣어서 재시작 전 ETag와 겹치지 않게 한다.
+ */
+@Component
+public class AggregateVersions {
+
+    public enum Aggregate {
+        MEMBER, ITEM
+    }
+
+    private final long epoch = System.currentTimeMillis();
+    private final Map<Aggregate, AtomicLong> versions = new EnumMap<>(Aggregate.class);
+
+    public AggregateVersions() {
+        for (Aggregate aggregate : Aggregate.values()) {
+            versions.put(aggregate, new AtomicLong());
+        }
+    }
+
+    public long current(Aggregate aggregate) {
+        return versions.get(aggregate).get();
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에, 아니면 바로 올린다.
+     */
+    public void bump(Aggregate aggregate) {
+        AtomicLong version = versions.get(aggregate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 강한 ETag. 데이터를 읽기 전에 만들어야 한다.(읽는 도중에 바뀌면 다음 요청에서 다시 받게 된다)
+     */
+    public String etag(String resource, Aggregate... aggregates) {
+        DataSourceRouter.pinRequestToPrimary(); //이 버전만큼 최신인 데이터는 primary에만 있다고 봐야 한다.
+        StringBuilder etag = new StringBuilder("\"").append(resource).append('-').append(epoch);
+        for (Aggregate aggregate : aggregates) {
+            etag.append('-').append(current(aggregate));
+        }
+        return etag.append('"').toString();
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 주문 보관 결과
+ */
+@Getter
+public class ArchiveResult {
+
+    private final long orders;
+    private final long orderItems;
+    private final int chunks;
+    private final long elapsedMillis;
+
+    public ArchiveResult(long orders, long orderItems, int chunks, long elapsedMillis) {
+        this.orders = orders;
+        this.orderItems = orderItems;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 대량 주문 취소 결과
+ * skippedOrderIds: 없는 주문, 이미 취소된 주문, 배송완료된 주문
+ */
+@Getter
+public class BulkCancelResult {
+
+    private final int requestedCount;
+    private final int canceledCount;
+    private final int restoredItemCount; //재고를 복구한 상품 종류 수
+    private final List<Long> skippedOrderIds;
+
+    public BulkCancelResult(int requestedCount, int canceledCount, int restoredItemCount, List<Long> skippedOrderIds) {
+        this.requestedCount = requestedCount;
+        this.canceledCount = canceledCount;
+        this.restoredItemCount = restoredItemCount;
+        this.skippedOrderIds = skippedOrderIds;
+    }
+}
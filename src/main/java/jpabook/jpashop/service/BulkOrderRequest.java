@@ -0,0 +1,25 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량 주문 한 건 (회원 한 명이 여러 상품을 주문)
+ */
+@Getter
+@Setter
+public class BulkOrderRequest {
+
+    private Long memberId;
+    private List<Line> lines = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Line {
+        private Long itemId;
+        private int count;
+    }
+}
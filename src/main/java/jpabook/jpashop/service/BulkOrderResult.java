@@ -0,0 +1,30 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 대량 주문 결과. index는 요청 목록에서의 위치
+ */
+@Getter
+public class BulkOrderResult {
+
+    private final int index;
+    private final boolean success;
+    private final Long orderId;
+    private final String error;
+
+    private BulkOrderResult(int index, boolean success, Long orderId, String error) {
+        this.index = index;
+        this.success = success;
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    public static BulkOrderResult success(int index, Long orderId) {
+        return new BulkOrderResult(index, true, orderId, null);
+    }
+
+    public static BulkOrderResult failure(int index, String error) {
+        return new BulkOrderResult(index, false, null, error);
+    }
+}
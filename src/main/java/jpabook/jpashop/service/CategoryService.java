@@ -0,0 +1,71 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+
+    /**
+     * 카테고리 생성. parentId가 없으면 최상위
+     */
+    @Transactional
+    public Long create(String name, Long parentId) {
+        Category category = new Category();
+        category.setName(name);
+        categoryRepository.save(category); //경로에 id가 들어가니까 먼저 저장
+
+        if (parentId == null) {
+            category.markAsRoot();
+        } else {
+            findCategory(parentId).addChildCategory(category);
+        }
+        return category.getId();
+    }
+
+    /**
+     * 카테고리를 다른 부모 아래로 옮긴다. 자손들의 경로도 같이 바뀐다.
+     */
+    @Transactional
+    public void move(Long categoryId, Long parentId) {
+        Category category = findCategory(categoryId);
+        String oldPath = category.getPath();
+
+        findCategory(parentId).addChildCategory(category);
+        categoryRepository.movePaths(oldPath, category.getPath());
+    }
+
+    @Transactional
+    public void addItem(Long categoryId, Long itemId) {
+        Category category = findCategory(categoryId);
+        Item item = itemRepository.findItem(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+        }
+        category.getItems().add(item);
+    }
+
+    public List<Item> findItemsInSubtree(Long categoryId, int offset, int limit) {
+        return categoryRepository.findItemsInSubtree(findCategory(categoryId).getPath(), offset, limit);
+    }
+
+    private Category findCategory(Long categoryId) {
+        Category category = categoryRepository.findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("존재하지 않는 카테고리입니다. categoryId=" + categoryId);
+        }
+        return category;
+    }
+}
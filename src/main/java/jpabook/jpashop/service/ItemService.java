@@ -15,10 +15,13 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final StockReservationEngine stockReservationEngine;
+    private final AggregateVersions aggregateVersions;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        aggregateVersions.bump(AggregateVersions.Aggregate.ITEM); //상품 목록 ETag
     }
 
     @Transactional
@@ -26,7 +29,13 @@ public class ItemService {
         Item findItem = itemRepository.findItem(itemId);
         findItem.setName(name);
         findItem.setPrice(price);
-        findItem.setStockQuantity(stockQuantity);
+        if (stockReservationEngine.isEnabled()) {
+            //재고 엔진을 쓰면 재고는 엔진을 통해서만 바꾼다.
+            stockReservationEngine.adjustTo(itemId, stockQuantity);
+        } else {
+            findItem.setStockQuantity(stockQuantity);
+        }
+        aggregateVersions.bump(AggregateVersions.Aggregate.ITEM);
     }
 
     public Item findOne(Long id) {
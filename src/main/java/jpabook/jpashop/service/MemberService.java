@@ -1,10 +1,14 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberNameFilter;
+import jpabook.jpashop.repository.MemberNameIndex;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryRepository;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +21,10 @@ public class MemberService {
 
     //final로 해놓는 이유는 컴파일 시점에 체크를 해주기 위해.
     private final MemberRepository memberRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final MemberNameIndex memberNameIndex;
+    private final MemberNameFilter memberNameFilter;
+    private final AggregateVersions aggregateVersions;
 //
 //    @Autowired //생성자가 하나면 @Autowired 생략도 가능하다.
 //    public MemberService(MemberRepository memberRepository) {
@@ -28,16 +36,32 @@ public class MemberService {
     public Long join(Member member) {
         validateDuplicateMember(member);//중복회원 검증
         memberRepository.save(member);
+        flushName(); //동시에 같은 이름으로 가입하면 여기서 unique 제약에 걸린다.
+        memberNameIndex.put(member.getId(), member.getName()); //커밋되면 이름 검색 인덱스에 반영
+        memberNameFilter.put(member.getName());
+        aggregateVersions.bump(AggregateVersions.Aggregate.MEMBER); //회원 목록 ETag
         return member.getId();
     }
 
     private void validateDuplicateMember(Member member) {
+        //필터가 없는 이름이라고 하면 확실히 새 이름이니까 조회하지 않는다. 있을 수도 있다고 하면(오탐 포함) 조회해서 확인
+        if (!memberNameFilter.mightContain(member.getName())) {
+            return;
+        }
         List<Member> findMembers = memberRepository.findByName(member.getName());
         if(!findMembers.isEmpty()){
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
+    private void flushName() {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+    }
+
     //회원 전체 조회
 
     public List<Member> findMembers() {
@@ -53,5 +77,10 @@ public class MemberService {
 
         Member member  = memberRepository.findOne(id);
         member.setName(name);
+        flushName();
+        orderSummaryRepository.updateMemberName(id, name); //주문 요약에 복사해둔 회원 이름도 같이
+        memberNameIndex.put(id, name);
+        memberNameFilter.put(name);
+        aggregateVersions.bump(AggregateVersions.Aggregate.MEMBER);
     }
 }
@@ -0,0 +1,60 @@
+package jpabook.jpashop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * @Version 충돌(낙관적 락 실패)이 나면 트랜잭션을 처음부터 다시 실행한다. 최대 maxAttempts번까지만.
+ * 트랜잭션 바깥(컨트롤러)에서 서비스 호출을 감싸서 사용한다.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetry {
+
+    @Value("${jpashop.stock.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${jpashop.stock.retry-backoff-ms:10}")
+    private long backoffMillis;
+
+    public <T> T execute(Supplier<T> action) {
+        //이미 트랜잭션 안이라면 다시 실행해도 같은 트랜잭션이라 의미가 없다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        int attempt = 1;
+        while (true) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("optimistic lock conflict. retry {}/{}", attempt, maxAttempts);
+                backoff(attempt++);
+            }
+        }
+    }
+
+    public void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(backoffMillis * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("재시도 대기 중 인터럽트", e);
+        }
+    }
+}
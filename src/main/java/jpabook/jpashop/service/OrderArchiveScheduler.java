@@ -0,0 +1,31 @@
+package jpabook.jpashop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * jpashop.archive.enabled=true면 interval-ms마다 주문 보관을 돌린다. 기본은 꺼져 있다.
+ * 보관된 주문은 /orders 화면(취소 필터 포함)에서 안 보이니까, 그걸 감안하고 켠다.
+ * 한 번 도는 동안 재고 저널 flush 같은 다른 @Scheduled 작업이 밀리지 않도록 spring.task.scheduling.pool.size를 2 이상으로 둔다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.archive.enabled", havingValue = "true")
+public class OrderArchiveScheduler {
+
+    private final OrderArchiveService orderArchiveService;
+
+    @Scheduled(initialDelayString = "${jpashop.archive.interval-ms:3600000}",
+            fixedDelayString = "${jpashop.archive.interval-ms:3600000}")
+    public void archive() {
+        ArchiveResult result = orderArchiveService.archive();
+        if (result.getOrders() > 0) {
+            log.info("주문 보관. orders={}, orderItems={}, chunks={}, {}ms",
+                    result.getOrders(), result.getOrderItems(), result.getChunks(), result.getElapsedMillis());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.OrderArchiveRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 취소된 주문과 보관 기간(retention-days)이 지난 주문을 orders_archive로 옮긴다.
+ * chunk-size건씩 트랜잭션을 나눠서 락을 오래 잡지 않는다. 옮길 게 없거나 max-chunks-per-run개를 옮길 때까지 반복한다.
+ * 처음 켰을 때 밀린 주문이 많아도 한 번에 다 옮기지 않고 다음 실행으로 넘긴다.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderArchiveService {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${jpashop.archive.retention-days:365}")
+    private int retentionDays;
+    @Value("${jpashop.archive.chunk-size:1000}")
+    private int chunkSize;
+    @Value("${jpashop.archive.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ArchiveResult archive() {
+        long begin = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        long[] moved = new long[3]; //주문, 주문상품, 청크 수
+        archiveAll(tx, () -> orderArchiveRepository.lockCanceledIds(chunkSize), moved);
+        archiveAll(tx, () -> orderArchiveRepository.lockExpiredIds(cutoff, chunkSize), moved);
+        return new ArchiveResult(moved[0], moved[1], (int) moved[2], System.currentTimeMillis() - begin);
+    }
+
+    private void archiveAll(TransactionTemplate tx, Supplier<List<Long>> lockNext, long[] moved) {
+        while (moved[2] < maxChunksPerRun) {
+            long[] chunk = tx.execute(status -> {
+                List<Long> orderIds = lockNext.get();
+                if (orderIds.isEmpty()) {
+                    return null;
+                }
+                return new long[]{orderIds.size(), orderArchiveRepository.moveToArchive(orderIds)};
+            });
+            if (chunk == null) {
+                return;
+            }
+            moved[0] += chunk[0];
+            moved[1] += chunk[1];
+            moved[2]++;
+        }
+    }
+}
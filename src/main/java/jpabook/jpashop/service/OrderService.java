@@ -4,25 +4,51 @@ import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
+@Slf4j
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final int BULK_CHUNK_SIZE = 100; //hibernate.jdbc.batch_size와 맞춘다.
+    private static final int IN_CLAUSE_SIZE = 1000; //in 절 하나에 넣을 id 수
+
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockReservationEngine stockReservationEngine;
+    private final PlatformTransactionManager transactionManager;
+    private final AggregateVersions aggregateVersions;
+
+    @Value("${jpashop.stock.mode:ENTITY}")
+    private StockMode stockMode;
 
     /**
      * 주문
@@ -38,13 +64,14 @@ public class OrderService {
         delivery.setAddress(member.getAddress());
 
         //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item,item.getPrice(),count);
+        OrderItem orderItem = createOrderItem(item, count);
 
         //주문 생성
         Order order =Order.createOrder(member,delivery,orderItem);
 
         //주문 저장
         orderRepository.save(order);
+        orderSummaryRepository.save(OrderSummary.create(order)); //목록 조회용 요약도 같은 트랜잭션에서
         return order.getId();
     }
 
@@ -56,11 +83,187 @@ public class OrderService {
          //주문 엔티티 조회
          Order order = orderRepository.findOne(orderId);
          //주문 취소
-         order.cancel();
+         cancel(order);
+         OrderSummary summary = orderSummaryRepository.findOne(orderId);
+         if (summary != null) {
+             summary.changeStatus(order.getStatus());
+         }
      }
 
+    /**
+     * 대량 주문 취소
+     * 주문을 하나씩 읽어서 cancel()하지 않고 SQL로 처리한다.
+     * 1. 배송완료가 아닌 주문만 골라 락을 걸고 2. 상태를 update 한 번으로 CANCEL로 바꾸고
+     * 3. 상품별 수량을 합쳐서 상품마다 재고 update를 한 번씩만 한다.
+     * 취소할 수 없는 주문은 건너뛰고 결과에 담아서 돌려준다.
+     */
+    @Transactional
+    public BulkCancelResult cancelOrders(List<Long> orderIds) {
+        List<Long> requested = new ArrayList<>(new LinkedHashSet<>(orderIds)); //중복 제거
+        List<Long> canceled = new ArrayList<>();
+        Map<Long, Integer> restock = new TreeMap<>(); //상품 id 순서로 update해서 다른 트랜잭션과 락 순서를 맞춘다.
+
+        for (int from = 0; from < requested.size(); from += IN_CLAUSE_SIZE) {
+            List<Long> chunk = requested.subList(from, Math.min(from + IN_CLAUSE_SIZE, requested.size()));
+            List<Long> cancelable = orderRepository.lockCancelableIds(chunk);
+            if (cancelable.isEmpty()) {
+                continue;
+            }
+            orderRepository.cancelAll(cancelable);
+            orderSummaryRepository.updateStatus(cancelable, OrderStatus.CANCEL);
+            for (Object[] row : orderRepository.sumCountByItem(cancelable)) {
+                restock.merge((Long) row[0], ((Number) row[1]).intValue(), Integer::sum);
+            }
+            canceled.addAll(cancelable);
+        }
+
+        restock.forEach((itemId, count) -> {
+            if (stockMode == StockMode.ENGINE) {
+                stockReservationEngine.release(itemId, count);
+            } else {
+                itemRepository.updateStockQuantity(itemId, count);
+            }
+        });
+        if (!restock.isEmpty() && stockMode != StockMode.ENGINE) {
+            aggregateVersions.bump(AggregateVersions.Aggregate.ITEM);
+        }
+
+        Set<Long> canceledIds = new HashSet<>(canceled);
+        List<Long> skipped = new ArrayList<>();
+        for (Long orderId : requested) {
+            if (!canceledIds.contains(orderId)) {
+                skipped.add(orderId);
+            }
+        }
+        return new BulkCancelResult(requested.size(), canceled.size(), restock.size(), skipped);
+    }
+
+    /**
+     * 대량 주문
+     * BULK_CHUNK_SIZE건씩 트랜잭션을 나눠서 insert를 JDBC batch로 한 번에 보낸다.
+     * 청크 안에서 한 건이라도 실패하면 그 청크는 롤백하고 한 건씩 다시 처리한다. 그래서 실패한 주문만 실패로 돌려준다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkOrderResult> orderBulk(List<BulkOrderRequest> requests) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<BulkOrderResult> results = new ArrayList<>(requests.size());
+
+        for (int from = 0; from < requests.size(); from += BULK_CHUNK_SIZE) {
+            int to = Math.min(from + BULK_CHUNK_SIZE, requests.size());
+            List<BulkOrderResult> chunk = orderChunk(tx, requests, from, to);
+            if (chunk == null) {
+                chunk = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    chunk.add(orderOne(tx, requests, i));
+                }
+            }
+            results.addAll(chunk);
+        }
+        return results;
+    }
+
+    //청크 전체를 한 트랜잭션으로. 하나라도 실패하면 null
+    private List<BulkOrderResult> orderChunk(TransactionTemplate tx, List<BulkOrderRequest> requests, int from, int to) {
+        try {
+            return tx.execute(status -> {
+                List<BulkOrderResult> chunk = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    chunk.add(BulkOrderResult.success(i, placeOrder(requests.get(i)).getId()));
+                }
+                orderRepository.flushAndClear(); //영속성 컨텍스트가 청크마다 비워지도록
+                return chunk;
+            });
+        } catch (RuntimeException e) {
+            //청크가 자주 깨지면 batch insert 이득이 사라지니까 원인을 남긴다. 주문별 실패 사유는 한 건씩 다시 처리할 때 결과에 담긴다.
+            log.warn("대량 주문 청크 실패, 한 건씩 다시 처리합니다. index={}~{}, cause={}", from, to - 1, e.toString());
+            return null;
+        }
+    }
+
+    private BulkOrderResult orderOne(TransactionTemplate tx, List<BulkOrderRequest> requests, int index) {
+        try {
+            Long orderId = tx.execute(status -> placeOrder(requests.get(index)).getId());
+            return BulkOrderResult.success(index, orderId);
+        } catch (RuntimeException e) {
+            return BulkOrderResult.failure(index, e.getMessage());
+        }
+    }
+
+    private Order placeOrder(BulkOrderRequest request) {
+        Member member = memberRepository.findOne(request.getMemberId());
+        if (member == null) {
+            throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + request.getMemberId());
+        }
+        if (request.getLines().isEmpty()) {
+            throw new IllegalArgumentException("주문상품이 없습니다.");
+        }
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        OrderItem[] orderItems = new OrderItem[request.getLines().size()];
+        for (int i = 0; i < orderItems.length; i++) {
+            BulkOrderRequest.Line line = request.getLines().get(i);
+            if (line.getCount() <= 0) { //음수면 재고가 오히려 늘어나고 주문금액이 음수가 된다.
+                throw new IllegalArgumentException("주문수량은 1 이상이어야 합니다. itemId=" + line.getItemId() + ", count=" + line.getCount());
+            }
+            Item item = itemRepository.findItem(line.getItemId());
+            if (item == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + line.getItemId());
+            }
+            orderItems[i] = createOrderItem(item, line.getCount());
+        }
+
+        Order order = Order.createOrder(member, delivery, orderItems);
+        orderRepository.save(order);
+        orderSummaryRepository.save(OrderSummary.create(order));
+        return order;
+    }
+
      //검색
     public List<Order> findOrders(OrderSearch orderSearch) {
-         return orderRepository.findAllByCriteria(orderSearch);
+         return orderRepository.findAllByNamedQuery(orderSearch);
+    }
+
+    //재고 차감 방식(jpashop.stock.mode)에 따라 주문상품 생성
+    //재고가 바뀌니까 상품 목록 ETag도 바뀌어야 한다.(ENGINE 모드는 저널 반영할 때 StockReservationEngine에서)
+    private OrderItem createOrderItem(Item item, int count) {
+        if (stockMode != StockMode.ENGINE) {
+            aggregateVersions.bump(AggregateVersions.Aggregate.ITEM);
+        }
+        switch (stockMode) {
+            case ATOMIC:
+                if (itemRepository.removeStock(item.getId(), count) == 0) {
+                    throw new NotEnoughStockException("need more stock");
+                }
+                return OrderItem.createReservedOrderItem(item, item.getPrice(), count);
+            case ENGINE:
+                stockReservationEngine.reserve(item.getId(), count);
+                return OrderItem.createReservedOrderItem(item, item.getPrice(), count);
+            default:
+                return OrderItem.createOrderItem(item, item.getPrice(), count);
+        }
+    }
+
+    private void cancel(Order order) {
+        if (stockMode != StockMode.ENGINE) {
+            aggregateVersions.bump(AggregateVersions.Aggregate.ITEM);
+        }
+        switch (stockMode) {
+            case ATOMIC:
+                order.cancelWithoutStock();
+                for (OrderItem orderItem : order.getOrderItems()) {
+                    itemRepository.updateStockQuantity(orderItem.getItem().getId(), orderItem.getCount());
+                }
+                break;
+            case ENGINE:
+                order.cancelWithoutStock();
+                for (OrderItem orderItem : order.getOrderItems()) {
+                    stockReservationEngine.release(orderItem.getItem().getId(), orderItem.getCount());
+                }
+                break;
+            default:
+                order.cancel();
+        }
     }
 }
@@ -0,0 +1,52 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryConsistency;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 주문 요약(order_summary) 읽기 모델 관리
+ * 평소에는 OrderService, MemberService가 같은 트랜잭션에서 갱신한다. 여기서는 재생성과 정합성 확인만 한다.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderSummaryService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    //원본 테이블에 맞게 order_summary를 고친다. 한 트랜잭션이라 도중에 조회해도 이전 데이터가 보인다.
+    //동시에 들어온 주문의 요약과 order_id가 겹치면 그 트랜잭션을 롤백하고 새 트랜잭션으로 다시 한다.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int rebuild() {
+        long begin = System.currentTimeMillis();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int rows = tx.execute(status -> orderSummaryRepository.rebuild());
+                log.info("order_summary rebuilt. rows={}, attempts={}, {}ms", rows, attempt, System.currentTimeMillis() - begin);
+                return rows;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("order_summary rebuild conflicted with a concurrent order. attempt={}", attempt);
+            }
+        }
+    }
+
+    public OrderSummaryConsistency checkConsistency() {
+        return orderSummaryRepository.checkConsistency();
+    }
+}
@@ -0,0 +1,10 @@
+package jpabook.jpashop.service;
+
+/**
+ * 주문/취소할 때 재고를 어떻게 바꿀지 (jpashop.stock.mode)
+ */
+public enum StockMode {
+    ENTITY, //Item.removeStock()으로 바꾸고 변경 감지로 update (@Version으로 충돌 검출)
+    ATOMIC, //update ... where stock_quantity >= ? 한 문장으로 차감
+    ENGINE  //StockReservationEngine 메모리 카운터로 예약하고 저널로 나중에 반영
+}
@@ -0,0 +1,200 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.ItemStockDelta;
+import jpabook.jpashop.domain.item.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockDeltaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 메모리 재고 예약 엔진 (jpashop.stock.mode=ENGINE 일 때만 사용)
+ *
+ * 상품마다 AtomicInteger 카운터를 두고 CAS로 차감한다. 락이 없어서 인기 상품에 주문이 몰려도 item row에서 줄을 서지 않고,
+ * 재고가 모자라면 DB에 가기 전에 바로 NotEnoughStockException이 난다.
+ * 차감/복구분은 주문과 같은 트랜잭션에서 item_stock_delta 저널에 insert만 하고,
+ * item.stock_quantity에는 flush()가 주기적으로 상품별 합계를 한 번에 반영한다.
+ * 카운터는 처음 쓸 때 item 재고 + 남은 저널 합계로 채우기 때문에 재시작해도 정확히 복구된다.
+ */
+@Slf4j
+@Component
+public class StockReservationEngine {
+
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+    private final ItemStockDeltaRepository itemStockDeltaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AggregateVersions aggregateVersions;
+
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    @Value("${jpashop.stock.mode:ENTITY}")
+    private StockMode stockMode;
+
+    public StockReservationEngine(ItemRepository itemRepository,
+                                  ItemStockDeltaRepository itemStockDeltaRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  AggregateVersions aggregateVersions) {
+        this.itemRepository = itemRepository;
+        this.aggregateVersions = aggregateVersions;
+        this.itemStockDeltaRepository = itemStockDeltaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return stockMode == StockMode.ENGINE;
+    }
+
+    /**
+     * 재고 차감(예약)
+     * 트랜잭션이 롤백되면 메모리 카운터도 되돌린다.
+     */
+    public void reserve(Long itemId, int count) {
+        checkTransaction();
+        AtomicInteger counter = counter(itemId);
+        while (true) {
+            int current = counter.get();
+            int rest = current - count;
+            if (rest < 0) {
+                throw new NotEnoughStockException("need more stock");
+            }
+            if (counter.compareAndSet(current, rest)) {
+                break;
+            }
+        }
+
+        afterRollback(() -> counter.addAndGet(count));
+        itemStockDeltaRepository.save(ItemStockDelta.create(itemId, -count));
+    }
+
+    /**
+     * 재고 복구(주문 취소)
+     * 커밋되기 전에는 다른 주문이 이 재고를 가져가면 안 되니까 커밋 후에 카운터를 올린다.
+     */
+    public void release(Long itemId, int count) {
+        checkTransaction();
+        AtomicInteger counter = counter(itemId);
+        itemStockDeltaRepository.save(ItemStockDelta.create(itemId, count));
+        afterCommit(() -> counter.addAndGet(count));
+    }
+
+    /**
+     * 재고를 지정한 수량으로 맞춘다.(상품 수정)
+     * item.stock_quantity를 직접 덮어쓰면 아직 반영 안 된 저널과 어긋나기 때문에 차이만큼을 저널로 남긴다.
+     */
+    public void adjustTo(Long itemId, int stockQuantity) {
+        checkTransaction();
+        AtomicInteger counter = counter(itemId);
+        int delta;
+        while (true) {
+            int current = counter.get();
+            delta = stockQuantity - current;
+            if (counter.compareAndSet(current, stockQuantity)) {
+                break;
+            }
+        }
+
+        if (delta != 0) {
+            int applied = delta;
+            afterRollback(() -> counter.addAndGet(-applied));
+            itemStockDeltaRepository.save(ItemStockDelta.create(itemId, applied));
+        }
+    }
+
+    /**
+     * 쌓인 저널을 상품별로 합쳐서 item 테이블에 반영한다.
+     * 반영과 저널 삭제가 한 트랜잭션이라 중간에 죽어도 두 번 반영되거나 빠지는 일이 없다.
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.engine.flush-interval-ms:1000}")
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        int flushed;
+        do {
+            Integer result = transactionTemplate.execute(status -> flushBatch());
+            flushed = result == null ? 0 : result;
+        } while (flushed == FLUSH_BATCH_SIZE);
+    }
+
+    private int flushBatch() {
+        List<ItemStockDelta> pending = itemStockDeltaRepository.findPending(FLUSH_BATCH_SIZE);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Integer> netDeltas = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(pending.size());
+        for (ItemStockDelta delta : pending) {
+            netDeltas.merge(delta.getItemId(), delta.getDelta(), Integer::sum);
+            ids.add(delta.getId());
+        }
+
+        netDeltas.forEach((itemId, delta) -> {
+            if (delta != 0) {
+                itemRepository.updateStockQuantity(itemId, delta);
+            }
+        });
+        itemStockDeltaRepository.deleteByIds(ids);
+        aggregateVersions.bump(AggregateVersions.Aggregate.ITEM); //item.stock_quantity가 바뀌었으니 상품 목록 ETag도
+
+        log.debug("stock journal flushed. deltas={}, items={}", ids.size(), netDeltas.size());
+        return pending.size();
+    }
+
+    //DB 조회는 computeIfAbsent 밖에서 한다. 안에서 하면 조회하는 동안 같은 bin의 다른 상품까지 막힌다.
+    //동시에 둘이 읽었으면 먼저 넣은 쪽을 쓰고 나중 값은 버린다.
+    private AtomicInteger counter(Long itemId) {
+        AtomicInteger counter = available.get(itemId);
+        if (counter != null) {
+            return counter;
+        }
+        Integer stock = itemStockDeltaRepository.findAvailableStock(itemId);
+        if (stock == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+        }
+        AtomicInteger loaded = new AtomicInteger(stock);
+        AtomicInteger existing = available.putIfAbsent(itemId, loaded);
+        return existing == null ? loaded : existing;
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void afterRollback(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private void checkTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("재고 예약은 트랜잭션 안에서만 할 수 있습니다.");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.EndpointSqlStats;
+import jpabook.jpashop.monitoring.SqlMetricsRegistry;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 목록 ETag(AggregateVersions). 바뀐 게 없으면 304를 SQL 없이 돌려주고, 바뀌면 새 ETag로 200
+ * 버전은 커밋된 뒤에 올라가니까 @Transactional 없이 실제로 커밋한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ListEtagTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    SqlMetricsRegistry sqlMetricsRegistry;
+
+    @Before
+    public void setUp() {
+        sqlMetricsRegistry.reset();
+    }
+
+    @Test
+    public void 회원목록() throws Exception {
+        String etag = etag("/api/v2/members");
+
+        assertNotModified("/api/v2/members", etag);
+
+        memberService.join(createMember("ETag회원"));
+        assertModified("/api/v2/members", etag);
+    }
+
+    @Test
+    public void 상품목록() throws Exception {
+        Long itemId = createBook();
+        String etag = etag("/items");
+
+        assertNotModified("/items", etag);
+
+        itemService.updateItem(itemId, "ETag JPA", 20000, 10);
+        assertModified("/items", etag);
+    }
+
+    @Test
+    public void 주문화면_주문과_취소() throws Exception {
+        Long memberId = memberService.join(createMember("ETag주문회원"));
+        Long itemId = createBook();
+        String etag = etag("/order");
+        assertNotModified("/order", etag);
+
+        Long orderId = orderService.order(memberId, itemId, 2); //재고가 바뀐다.
+        etag = assertModified("/order", etag);
+        assertNotModified("/order", etag);
+
+        orderService.cancelOrder(orderId);
+        assertModified("/order", etag);
+    }
+
+    private String etag(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(url + " 응답에 ETag가 있어야 한다.", etag);
+        return etag;
+    }
+
+    private void assertNotModified(String url, String etag) throws Exception {
+        sqlMetricsRegistry.reset();
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals("304는 DB를 거치지 않는다.", 0, sqlStatements(url));
+    }
+
+    /**
+     * 예전 ETag로 다시 요청하면 200과 새 ETag. 새 ETag를 돌려준다.
+     */
+    private String assertModified(String url, String etag) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        String newEtag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(newEtag);
+        assertNotEquals("바뀌었으면 ETag도 바뀐다.", etag, newEtag);
+        return newEtag;
+    }
+
+    private long sqlStatements(String url) {
+        return sqlMetricsRegistry.findAll().stream()
+                .filter(s -> s.getEndpoint().equals("GET " + url))
+                .mapToLong(EndpointSqlStats::getStatements)
+                .sum();
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name + System.nanoTime()); //중복 가입 확인에 걸리지 않게
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        return member;
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("ETag JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,157 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 키셋(커서) 페이징 v3.2, v4.1, v5.1
+ * 주문 시각이 같은 주문이 페이지 경계에 걸려도 빠지거나 겹치지 않아야 한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderCursorPagingTest {
+
+    private static final String[] URLS = {"/api/v3.2/orders", "/api/v4.1/orders", "/api/v5.1/orders"};
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    private final List<Long> sameTimeOrders = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Member member = new Member();
+        member.setName("커서회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        Long memberId = memberService.join(member);
+
+        Book book = new Book();
+        book.setName("커서 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        for (int i = 0; i < 5; i++) {
+            sameTimeOrders.add(orderService.order(memberId, book.getId(), 1));
+        }
+        //주문 시각을 똑같이 맞춘다. 맨 뒤에 오도록 먼 미래로
+        LocalDateTime orderDate = LocalDateTime.of(2099, 1, 1, 0, 0);
+        new TransactionTemplate(transactionManager).execute(status -> em.createQuery(
+                "update Order o set o.orderDate = :orderDate where o.id in :ids")
+                .setParameter("orderDate", orderDate)
+                .setParameter("ids", sameTimeOrders)
+                .executeUpdate());
+    }
+
+    @Test
+    public void 같은시각_주문이_페이지경계에_걸려도() throws Exception {
+        for (String url : URLS) {
+            List<Long> seen = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do { //마지막 페이지에서 next가 null이어야 끝난다.
+                MockHttpServletRequestBuilder request = get(url).param("limit", "2");
+                if (cursor != null) {
+                    request.param("cursor", cursor);
+                }
+                JsonNode page = page(request);
+                for (JsonNode order : page.get("data")) {
+                    seen.add(order.get("orderId").asLong());
+                }
+                cursor = page.get("next").isNull() ? null : page.get("next").asText();
+                assertTrue(url + " 페이지가 끝나지 않는다.", ++pages < 10_000);
+            } while (cursor != null);
+
+            assertEquals(url + " 겹치는 주문이 없다.", new HashSet<>(seen).size(), seen.size());
+            assertEquals(url + " 같은 시각 주문이 마지막에 순서대로", sameTimeOrders,
+                    seen.subList(seen.size() - sameTimeOrders.size(), seen.size()));
+        }
+    }
+
+    @Test
+    public void 마지막페이지는_next가_null() throws Exception {
+        for (String url : URLS) {
+            JsonNode page = page(get(url).param("limit", "1000"));
+            assertTrue(url, page.get("data").size() < 1000);
+            assertTrue(url + " 덜 찬 페이지면 next는 null", page.get("next").isNull());
+        }
+    }
+
+    @Test
+    public void 페이지크기는_1에서_1000() throws Exception {
+        for (String url : URLS) {
+            for (String limit : new String[]{"0", "-5"}) {
+                JsonNode page = page(get(url).param("limit", limit));
+                assertEquals(url + " limit=" + limit, 1, page.get("data").size());
+                assertFalse(url + " 한 건짜리 페이지도 다음 커서가 있다.", page.get("next").isNull());
+            }
+        }
+    }
+
+    @Test
+    public void 깨진커서는_400() throws Exception {
+        Set<String> cursors = new HashSet<>();
+        cursors.add("not-a-cursor");
+        cursors.add("!!!");
+        for (String url : URLS) {
+            for (String cursor : cursors) {
+                mockMvc.perform(get(url).param("cursor", cursor))
+                        .andExpect(status().isBadRequest());
+            }
+        }
+    }
+
+    private JsonNode page(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 주문 내보내기(NDJSON). 한 줄에 주문 하나, 결과는 v6(findAllByDto_flatTree)와 같아야 한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderExportTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 주문마다_한줄() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("내보내기회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        Long memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("내보내기 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        Long orderId = orderService.order(memberId, book.getId(), 2);
+
+        //when
+        MockHttpServletResponse response = mockMvc.perform(get("/api/v6/orders/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        //then
+        assertTrue(response.getContentType().startsWith("application/x-ndjson"));
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        assertTrue("마지막 줄도 줄바꿈으로 끝난다.", body.endsWith("\n"));
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        List<OrderQueryDto> expected = new TransactionTemplate(transactionManager)
+                .execute(status -> orderQueryRepository.findAllByDto_flatTree());
+        assertEquals(expected.size(), lines.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getOrderId().longValue(), lines.get(i).get("orderId").asLong());
+            assertEquals(expected.get(i).getOrderItems().size(), lines.get(i).get("orderItems").size());
+        }
+
+        JsonNode exported = lines.stream()
+                .filter(o -> o.get("orderId").asLong() == orderId)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertEquals(member.getName(), exported.get("name").asText());
+        assertEquals("내보내기 JPA", exported.get("orderItems").get(0).get("itemName").asText());
+        assertEquals(2, exported.get("orderItems").get(0).get("count").asInt());
+    }
+}
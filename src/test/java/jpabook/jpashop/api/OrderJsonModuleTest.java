@@ -0,0 +1,74 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 손으로 쓴 serializer가 BeanSerializer와 글자 하나까지 같은 JSON을 만드는지
+ */
+public class OrderJsonModuleTest {
+
+    //부트 기본 설정과 같게(날짜는 ISO 문자열)
+    private final ObjectMapper reflective = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ObjectMapper streaming = reflective.copy().registerModule(new OrderJsonModule());
+
+    @Test
+    public void 엔티티로_만든_주문DTO() throws Exception {
+        Order order = createOrder();
+
+        assertSameJson(Collections.singletonList(new OrderApiController.OrderDto(order)));
+        assertSameJson(Collections.singletonList(new OrderSimpleApiController.SimpleOrderDto(order)));
+    }
+
+    @Test
+    public void 쿼리로_만든_주문DTO() throws Exception {
+        LocalDateTime orderDate = LocalDateTime.of(2021, 1, 2, 3, 4, 5, 6_000_000);
+        OrderQueryDto order = new OrderQueryDto(1L, "userA", orderDate, OrderStatus.ORDER, new Address("서울", "\"강가\"", null),
+                Arrays.asList(new OrderItemQueryDto(1L, "JPA1 BOOK", 10000, 1), new OrderItemQueryDto(1L, null, 20000, 2)));
+        OrderQueryDto empty = new OrderQueryDto(2L, null, null, null, null);
+
+        assertSameJson(Arrays.asList(order, empty));
+        assertSameJson(Collections.singletonList(new OrderSimpleQueryDto(3L, "userB", OrderStatus.CANCEL, orderDate, null)));
+    }
+
+    private void assertSameJson(Object value) throws Exception {
+        assertEquals(reflective.writeValueAsString(value), streaming.writeValueAsString(value));
+    }
+
+    private Order createOrder() {
+        Member member = new Member();
+        member.setName("userA");
+        member.setAddress(new Address("서울", "1", "1111"));
+
+        Book book = new Book();
+        book.setName("JPA1 BOOK");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        return Order.createOrder(member, delivery,
+                OrderItem.createOrderItem(book, 10000, 1), OrderItem.createOrderItem(book, 10000, 2));
+    }
+}
@@ -0,0 +1,136 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.AggregateVersions;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 두 개로 primary/레플리카를 흉내낸다.
+ * 테스트마다 primary를 통째로 떠서 레플리카에 붓고(스냅샷), 그 뒤에 쓴 건 레플리카에 없다.(복제 지연)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingDataSourceTest.PRIMARY_URL,
+        "jpashop.datasource.replicas=" + ReadWriteRoutingDataSourceTest.REPLICA_URL
+})
+public class ReadWriteRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    DataSourceRouter dataSourceRouter;
+
+    @Autowired
+    AggregateVersions aggregateVersions;
+
+    @Before
+    public void 레플리카_동기화() throws Exception {
+        Path script = Files.createTempFile("routing-primary", ".sql");
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement ps = primary.createStatement();
+             Statement rs = replica.createStatement()) {
+            ps.execute("SCRIPT TO '" + script + "'");
+            rs.execute("DROP ALL OBJECTS");
+            rs.execute("RUNSCRIPT FROM '" + script + "'");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+        dataSourceRouter.reset();
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_레플리카로() throws Exception {
+        //given
+        memberService.join(createMember("레플리카에없는회원"));
+
+        //when
+        List<String> names = memberNames();
+
+        //then
+        assertTrue("스냅샷에 있던 회원은 레플리카에서 읽힌다.", names.contains("userA"));
+        assertFalse("스냅샷 뒤에 가입한 회원은 레플리카에 없다.", names.contains("레플리카에없는회원"));
+        assertTrue(connections("replica-0") > 0);
+    }
+
+    @Test
+    public void 같은_요청에서_쓴_뒤의_읽기는_primary로() throws Exception {
+        dataSourceRouter.beginRequest();
+        try {
+            //given
+            memberService.join(createMember("방금가입한회원"));
+
+            //when
+            List<String> names = memberNames();
+
+            //then
+            assertTrue("쓰기 뒤의 읽기는 primary에서 읽어야 한다.", names.contains("방금가입한회원"));
+            assertEquals(0, connections("replica-0"));
+            assertTrue(stats("primary").getStickyReads() > 0);
+        } finally {
+            dataSourceRouter.endRequest();
+        }
+    }
+
+    @Test
+    public void ETag를_만든_요청의_읽기는_primary로() throws Exception {
+        //given 다른 요청에서 가입 -> 버전은 올라갔지만 레플리카에는 아직 없다.
+        memberService.join(createMember("ETag회원"));
+
+        dataSourceRouter.beginRequest();
+        try {
+            //when
+            aggregateVersions.etag("members-v2", AggregateVersions.Aggregate.MEMBER);
+            List<String> names = memberNames();
+
+            //then
+            assertTrue("새 ETag로 내려가는 목록에는 새 회원이 있어야 한다.", names.contains("ETag회원"));
+            assertEquals(0, connections("replica-0"));
+        } finally {
+            dataSourceRouter.endRequest();
+        }
+    }
+
+    private List<String> memberNames() {
+        return memberService.findMembers().stream().map(Member::getName).collect(toList());
+    }
+
+    private long connections(String route) {
+        return stats(route).getConnections();
+    }
+
+    private DataSourceRouter.RouteStats stats(String route) {
+        return dataSourceRouter.getStats().stream()
+                .filter(s -> s.getRoute().equals(route))
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new);
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        return member;
+    }
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.monitoring;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HibernateStatsSnapshotTest {
+
+    private static final String MEMBER = "jpabook.jpashop.domain.Member";
+    private static final String ORDER = "jpabook.jpashop.domain.Order";
+    private static final String MEMBER_QUERY = "select m from Member m";
+    private static final String ORDER_QUERY = "select o from Order o";
+    private static final String MEMBER_REGION = "jpabook.jpashop.domain.Member";
+
+    @Test
+    public void 전체_카운터() throws Exception {
+        HibernateStatsSnapshot previous = HibernateStatsSnapshot.take(statistics(10, 3, 2, 1));
+        HibernateStatsSnapshot current = HibernateStatsSnapshot.take(statistics(25, 3, 2, 1));
+
+        HibernateStatsSnapshot delta = current.minus(previous);
+
+        assertEquals(15, delta.getStatements());
+        assertEquals(previous.getTo(), delta.getFrom());
+        assertEquals(current.getTo(), delta.getTo());
+    }
+
+    @Test
+    public void 엔티티별() throws Exception {
+        HibernateStatsSnapshot delta = HibernateStatsSnapshot.take(statistics(0, 7, 0, 0))
+                .minus(HibernateStatsSnapshot.take(statistics(0, 3, 0, 0)));
+
+        HibernateStatsSnapshot.EntityCounts member = delta.getEntities().get(MEMBER);
+        assertEquals(4, member.getLoads());
+        assertEquals(4, member.getCacheHits());
+        assertFalse("바뀐 게 없는 엔티티는 빠진다.", delta.getEntities().containsKey(ORDER));
+    }
+
+    @Test
+    public void 캐시안하는_엔티티의_캐시값은_0() throws Exception {
+        HibernateStatsSnapshot snapshot = HibernateStatsSnapshot.take(statistics(0, 0, 0, 0));
+
+        HibernateStatsSnapshot.EntityCounts order = snapshot.getEntities().get(ORDER);
+        assertEquals(0, order.getCacheHits());
+        assertEquals(0, order.getCacheMisses());
+    }
+
+    @Test
+    public void 쿼리별() throws Exception {
+        Statistics before = statistics(0, 0, 2, 0);
+        when(before.getQueries()).thenReturn(new String[]{MEMBER_QUERY}); //ORDER_QUERY는 아직 없다.
+        HibernateStatsSnapshot delta = HibernateStatsSnapshot.take(statistics(0, 0, 5, 0))
+                .minus(HibernateStatsSnapshot.take(before));
+
+        HibernateStatsSnapshot.QueryCounts member = delta.getQueries().get(MEMBER_QUERY);
+        assertEquals(3, member.getExecutions());
+        assertEquals(30, member.getRows());
+        assertEquals("최댓값은 빼지 않는다.", 50, member.getMaxTimeMillis());
+        assertEquals("윈도우 안에서 처음 생긴 쿼리는 전부", 1, delta.getQueries().get(ORDER_QUERY).getExecutions());
+    }
+
+    @Test
+    public void 영역별() throws Exception {
+        HibernateStatsSnapshot delta = HibernateStatsSnapshot.take(statistics(0, 0, 0, 4))
+                .minus(HibernateStatsSnapshot.take(statistics(0, 0, 0, 1)));
+
+        HibernateStatsSnapshot.RegionCounts region = delta.getRegions().get(MEMBER_REGION);
+        assertEquals(3, region.getHits());
+        assertEquals(0, region.getPuts());
+    }
+
+    @Test
+    public void 카운터가_줄면_0부터_다시센_것으로() throws Exception {
+        //Statistics.clear() 또는 쿼리 통계가 밀려났다가 다시 생긴 경우
+        HibernateStatsSnapshot delta = HibernateStatsSnapshot.take(statistics(30, 2, 1, 0))
+                .minus(HibernateStatsSnapshot.take(statistics(100, 10, 8, 0)));
+
+        assertEquals(30, delta.getStatements());
+        assertEquals(2, delta.getEntities().get(MEMBER).getLoads());
+        assertEquals(1, delta.getQueries().get(MEMBER_QUERY).getExecutions());
+    }
+
+    /**
+     * Member 엔티티/쿼리/캐시 영역만 값이 바뀌고, Order는 항상 같은 값인 통계
+     */
+    private static Statistics statistics(long statements, long memberLoads, long memberQueries, long regionHits) {
+        Statistics statistics = mock(Statistics.class);
+        when(statistics.getPrepareStatementCount()).thenReturn(statements);
+
+        when(statistics.getEntityNames()).thenReturn(new String[]{MEMBER, ORDER});
+        EntityStatistics member = mock(EntityStatistics.class);
+        when(member.getLoadCount()).thenReturn(memberLoads);
+        when(member.getCacheRegionName()).thenReturn(MEMBER_REGION);
+        when(member.getCacheHitCount()).thenReturn(memberLoads);
+        when(statistics.getEntityStatistics(MEMBER)).thenReturn(member);
+        EntityStatistics order = mock(EntityStatistics.class);
+        when(order.getLoadCount()).thenReturn(5L);
+        when(order.getCacheHitCount()).thenReturn(-1L); //캐시 안 하는 엔티티(NOT_CACHED_COUNT)
+        when(order.getCacheMissCount()).thenReturn(-1L);
+        when(statistics.getEntityStatistics(ORDER)).thenReturn(order);
+
+        when(statistics.getCollectionRoleNames()).thenReturn(new String[0]);
+
+        when(statistics.getQueries()).thenReturn(new String[]{MEMBER_QUERY, ORDER_QUERY});
+        QueryStatistics memberQuery = mock(QueryStatistics.class);
+        when(memberQuery.getExecutionCount()).thenReturn(memberQueries);
+        when(memberQuery.getExecutionRowCount()).thenReturn(memberQueries * 10);
+        when(memberQuery.getExecutionMaxTime()).thenReturn(50L);
+        when(statistics.getQueryStatistics(MEMBER_QUERY)).thenReturn(memberQuery);
+        QueryStatistics orderQuery = mock(QueryStatistics.class);
+        when(orderQuery.getExecutionCount()).thenReturn(1L);
+        when(statistics.getQueryStatistics(ORDER_QUERY)).thenReturn(orderQuery);
+
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[]{MEMBER_REGION});
+        CacheRegionStatistics region = mock(CacheRegionStatistics.class);
+        when(region.getHitCount()).thenReturn(regionHits);
+        when(statistics.getCacheRegionStatistics(MEMBER_REGION)).thenReturn(region);
+        return statistics;
+    }
+}
@@ -0,0 +1,42 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SqlShapeTest {
+
+    @Test
+    public void 값은_물음표로() throws Exception {
+        assertEquals("select * from member m where m.name = ? and m.member_id > ?",
+                SqlShape.of("select * from member m where m.name = 'userA' and m.member_id > 10"));
+        assertEquals("작은따옴표가 이스케이프된 문자열도 하나의 값", "select * from member where name = ?",
+                SqlShape.of("select * from member where name = 'it''s me'"));
+        assertEquals("소수", "select * from item where price > ?", SqlShape.of("select * from item where price > 10.5"));
+    }
+
+    @Test
+    public void 식별자안의_숫자는_그대로() throws Exception {
+        assertEquals("select order0_.order_id as order_id1_6_ from orders order0_ where order0_.order_id=?",
+                SqlShape.of("select order0_.order_id as order_id1_6_ from orders order0_ where order0_.order_id=?"));
+    }
+
+    @Test
+    public void in절은_개수와_상관없이_하나로() throws Exception {
+        String one = SqlShape.of("select * from orders where member_id in (?)");
+        assertEquals("select * from orders where member_id in (?)", one);
+        assertEquals(one, SqlShape.of("select * from orders where member_id in (?, ?, ?)"));
+        assertEquals(one, SqlShape.of("select * from orders where member_id in ( ?,? )"));
+        assertEquals("값이 박힌 in 절도", one, SqlShape.of("select * from orders where member_id in (1, 2, 3)"));
+    }
+
+    @Test
+    public void 공백과_대소문자와_주석() throws Exception {
+        String shape = "select * from orders where status = ?";
+        assertEquals(shape, SqlShape.of("  SELECT *\n\tFROM orders\r\n  WHERE status = ?  "));
+        assertEquals(shape, SqlShape.of("/* select o from Order o */ select * from orders where status = ?"));
+        assertEquals(shape, SqlShape.of("select * from orders /* 여러\n줄 */ where status = ? -- 끝"));
+        assertEquals("문자열 안의 --는 주석이 아니다.", "select * from orders where status = ? and ?=?",
+                SqlShape.of("select * from orders where status = '--' and 1=1"));
+    }
+}
@@ -0,0 +1,143 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * 가입/이름 변경이 커밋된 뒤에 반영되는 것까지 보려고 @Transactional 없이 실제로 커밋하고, 끝나면 지운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class MemberNameIndexTest {
+
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    private TransactionTemplate tx;
+    private final List<Long> created = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        memberNameIndex.rebuild(); //다른 테스트가 서비스를 거치지 않고 넣은 회원까지 다시 읽는다.
+    }
+
+    @After
+    public void tearDown() {
+        if (!created.isEmpty()) {
+            tx.execute(status -> em.createQuery("delete from Member m where m.id in :ids")
+                    .setParameter("ids", created)
+                    .executeUpdate());
+        }
+        memberNameIndex.rebuild();
+    }
+
+    @Test
+    public void 조각으로_후보찾기() throws Exception {
+        Long kim = join("색인김철수");
+        Long park = join("색인박철수");
+        Long lee = join("색인이영희");
+
+        assertEquals(set(kim), memberNameIndex.candidates("김철수"));
+        assertEquals("조각이 다 있어도 순서가 다르면 빠진다.", set(), memberNameIndex.candidates("철수김"));
+        assertEquals(set(kim, park, lee), memberNameIndex.candidates("색인"));
+        assertEquals("3글자보다 짧으면 이름을 직접 훑는다.", set(kim, park), memberNameIndex.candidates("철수"));
+    }
+
+    @Test
+    public void 없는이름은_빈결과() throws Exception {
+        join("색인김철수");
+
+        Set<Long> candidates = memberNameIndex.candidates("없는이름입니다");
+        assertNotNull("인덱스를 믿을 수 있으면 like로 넘기지 않는다.", candidates);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void 이름변경() throws Exception {
+        Long id = join("색인김철수");
+
+        memberService.update(id, "색인최민수");
+
+        assertEquals(set(), memberNameIndex.candidates("김철수"));
+        assertEquals(set(id), memberNameIndex.candidates("최민수"));
+    }
+
+    @Test
+    public void 서비스를_거치지않은_회원이_있으면_like로() throws Exception {
+        join("색인김철수");
+        Long direct = tx.execute(status -> {
+            Member member = new Member();
+            member.setName("색인박철수");
+            em.persist(member);
+            return member.getId();
+        });
+        created.add(direct);
+
+        assertNull("인덱스가 모르는 회원이 있으면 null(like 검색)", memberNameIndex.candidates("박철수"));
+
+        memberNameIndex.rebuild();
+        assertEquals(set(direct), memberNameIndex.candidates("박철수"));
+    }
+
+    @Test
+    public void 다시만드는중에도_검색된다() throws Exception {
+        Long kim = join("색인김철수");
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> rebuilding = pool.submit(() -> {
+            for (int i = 0; i < 20; i++) {
+                memberNameIndex.rebuild();
+            }
+        });
+        while (!rebuilding.isDone()) {
+            assertEquals(set(kim), memberNameIndex.candidates("김철수"));
+        }
+        rebuilding.get();
+        pool.shutdown();
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        Long id = memberService.join(member);
+        created.add(id);
+        return id;
+    }
+
+    private static Set<Long> set(Long... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
@@ -0,0 +1,161 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * named query(findAllByNamedQuery)와 Criteria(findAllByCriteria)가 조건 조합마다 같은 주문을 같은 순서로 찾는지
+ * 회원 이름 인덱스(MemberNameIndex)에 반영되려면 커밋돼야 하니까 @Transactional 없이 서비스로 만든다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSearchQueriesTest {
+
+    private static final String[] NAMES = {null, "조합김철수", "철수", "없는회원이름"};
+    private static final OrderStatus[] STATUSES = {null, OrderStatus.ORDER, OrderStatus.CANCEL};
+    private static final Integer[] MIN_PRICES = {null, 15000};
+    private static final Integer[] MAX_PRICES = {null, 25000};
+    private static final OrderSort[] SORTS = {null, OrderSort.LATEST, OrderSort.TOTAL_PRICE_DESC, OrderSort.TOTAL_PRICE_ASC};
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    private TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        memberNameIndex.rebuild(); //다른 테스트가 서비스를 거치지 않고 넣은 회원까지
+
+        Long kim = memberService.join(createMember("조합김철수" + System.nanoTime()));
+        Long park = memberService.join(createMember("조합박철수" + System.nanoTime()));
+        Long itemId = createBook();
+        orderService.order(kim, itemId, 1); //10000
+        orderService.cancelOrder(orderService.order(kim, itemId, 2)); //20000
+        orderService.order(park, itemId, 2); //20000
+        orderService.order(park, itemId, 3); //30000
+    }
+
+    @Test
+    public void 인덱스로_찾는_조합() throws Exception {
+        assertSameForAllCombinations();
+    }
+
+    @Test
+    public void like로_찾는_조합() throws Exception {
+        //인덱스가 모르는 회원이 있으면 이름 조건은 like로 바뀐다.
+        Long direct = tx.execute(status -> {
+            Member member = new Member();
+            member.setName("조합이철수");
+            em.persist(member);
+            return member.getId();
+        });
+        try {
+            assertNull(memberNameIndex.candidates("철수"));
+            assertSameForAllCombinations();
+        } finally {
+            tx.execute(status -> em.createQuery("delete from Member m where m.id = :id")
+                    .setParameter("id", direct)
+                    .executeUpdate());
+            memberNameIndex.rebuild();
+        }
+    }
+
+    private void assertSameForAllCombinations() {
+        for (String name : NAMES) {
+            for (OrderStatus status : STATUSES) {
+                for (Integer min : MIN_PRICES) {
+                    for (Integer max : MAX_PRICES) {
+                        for (OrderSort sort : SORTS) {
+                            OrderSearch search = new OrderSearch();
+                            search.setMemberName(name);
+                            search.setOrderStatus(status);
+                            search.setMinTotalPrice(min);
+                            search.setMaxTotalPrice(max);
+                            search.setSort(sort);
+                            assertSame(search);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertSame(OrderSearch search) {
+        List<Long> named = orderIds(orderRepository::findAllByNamedQuery, search);
+        List<Long> criteria = orderIds(orderRepository::findAllByCriteria, search);
+        String message = String.format("name=%s, status=%s, min=%s, max=%s, sort=%s",
+                search.getMemberName(), search.getOrderStatus(),
+                search.getMinTotalPrice(), search.getMaxTotalPrice(), search.getSort());
+        if (search.getSort() == null) {
+            //정렬이 없으면 순서는 DB 마음대로다.
+            assertEquals(message, new HashSet<>(criteria), new HashSet<>(named));
+            assertEquals(message, criteria.size(), named.size());
+        } else {
+            assertEquals(message, criteria, named);
+        }
+    }
+
+    private List<Long> orderIds(Function<OrderSearch, List<Order>> finder, OrderSearch search) {
+        return tx.execute(status -> finder.apply(search).stream()
+                .map(Order::getId)
+                .collect(Collectors.toCollection(ArrayList::new)));
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        return member;
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("조합 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
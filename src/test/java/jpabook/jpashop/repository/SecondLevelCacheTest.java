@@ -0,0 +1,103 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.ItemService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * READ_WRITE 2차 캐시에 올라간 상품이 수정 후에 옛날 값으로 읽히지 않는지
+ * 캐시는 커밋 시점에 갱신/무효화되니까 @Transactional 없이 트랜잭션마다 커밋한다.
+ * 테스트 설정에는 2차 캐시가 꺼져 있어서 여기서 켠다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache"})
+public class SecondLevelCacheTest {
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private Long itemId;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        Book book = new Book();
+        book.setName("캐시 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        itemId = book.getId();
+
+        stockQuantity(); //캐시에 올린다.
+        assertTrue(emf.getCache().contains(Item.class, itemId));
+    }
+
+    @Test
+    public void 엔티티_수정() throws Exception {
+        itemService.updateItem(itemId, "캐시 JPA 개정판", 20000, 7);
+
+        Item item = tx.execute(status -> em.find(Item.class, itemId));
+        assertEquals("캐시 JPA 개정판", item.getName());
+        assertEquals(7, item.getStockQuantity());
+    }
+
+    @Test
+    public void 조건부_차감_벌크_update() throws Exception {
+        assertEquals(1, (int) tx.execute(status -> itemRepository.removeStock(itemId, 3)));
+
+        assertFalse("벌크 update는 Item 영역을 비운다.", emf.getCache().contains(Item.class, itemId));
+        assertEquals(7, stockQuantity());
+    }
+
+    @Test
+    public void 재고_복구_벌크_update() throws Exception {
+        assertEquals(1, (int) tx.execute(status -> itemRepository.updateStockQuantity(itemId, 5)));
+
+        assertFalse(emf.getCache().contains(Item.class, itemId));
+        assertEquals(15, stockQuantity());
+    }
+
+    @Test
+    public void 롤백된_벌크_update는_반영되지_않는다() throws Exception {
+        tx.execute(status -> {
+            itemRepository.removeStock(itemId, 3);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(10, stockQuantity());
+    }
+
+    //새 트랜잭션(새 영속성 컨텍스트)에서 읽는다. 1차 캐시가 아니라 2차 캐시나 DB에서 온다.
+    private int stockQuantity() {
+        return tx.execute(status -> em.find(Item.class, itemId).getStockQuantity());
+    }
+}
@@ -0,0 +1,97 @@
+package jpabook.jpashop.repository.order.query;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FlatTreeAssemblerTest {
+
+    //행은 {부모 키, 자식}
+    private final FlatTreeAssembler<String[], String, Parent, String> assembler = new FlatTreeAssembler<>(
+            row -> row[0], row -> new Parent(row[0]), row -> row[1], (parent, child) -> parent.children.add(child));
+
+    @Test
+    public void 연속된_키끼리_묶는다() throws Exception {
+        List<Parent> result = assembler.assemble(Arrays.asList(
+                row("1", "a"), row("1", "b"), row("2", "c"), row("3", "d"), row("3", "e")));
+
+        assertEquals(3, result.size());
+        assertParent(result.get(0), "1", "a", "b");
+        assertParent(result.get(1), "2", "c");
+        assertParent(result.get(2), "3", "d", "e");
+    }
+
+    @Test
+    public void 떨어져있는_같은키는_따로() throws Exception {
+        //정렬되어 있지 않으면 합쳐지지 않는다. 그래서 쿼리에 order by가 있어야 한다.
+        List<Parent> result = assembler.assemble(Arrays.asList(row("1", "a"), row("2", "b"), row("1", "c")));
+
+        assertEquals(3, result.size());
+        assertParent(result.get(0), "1", "a");
+        assertParent(result.get(2), "1", "c");
+    }
+
+    @Test
+    public void null키도_하나의_부모() throws Exception {
+        List<Parent> result = assembler.assemble(Arrays.asList(row(null, "a"), row(null, "b"), row("1", "c")));
+
+        assertEquals(2, result.size());
+        assertParent(result.get(0), null, "a", "b");
+    }
+
+    @Test
+    public void 빈결과() throws Exception {
+        assertTrue(assembler.assemble(Collections.emptyList()).isEmpty());
+
+        List<Parent> consumed = new ArrayList<>();
+        assembler.assemble(Collections.<String[]>emptyIterator(), consumed::add);
+        assertTrue(consumed.isEmpty());
+    }
+
+    @Test
+    public void 키가_바뀌면_바로_넘긴다() throws Exception {
+        List<String[]> rows = Arrays.asList(row("1", "a"), row("1", "b"), row("2", "c"), row("3", "d"));
+        int[] read = {0};
+        Iterator<String[]> iterator = new Iterator<String[]>() {
+            @Override
+            public boolean hasNext() {
+                return read[0] < rows.size();
+            }
+
+            @Override
+            public String[] next() {
+                return rows.get(read[0]++);
+            }
+        };
+        List<String> consumed = new ArrayList<>();
+
+        assembler.assemble(iterator, parent -> consumed.add(parent.key + "@" + read[0]));
+
+        //부모 1은 부모 2의 첫 행을 읽은 직후에, 마지막 부모는 다 읽고 나서
+        assertEquals(Arrays.asList("1@3", "2@4", "3@4"), consumed);
+    }
+
+    private static String[] row(String key, String child) {
+        return new String[]{key, child};
+    }
+
+    private static void assertParent(Parent parent, String key, String... children) {
+        assertEquals(key, parent.key);
+        assertEquals(Arrays.asList(children), parent.children);
+    }
+
+    static class Parent {
+        final String key;
+        final List<String> children = new ArrayList<>();
+
+        Parent(String key) {
+            this.key = key;
+        }
+    }
+}
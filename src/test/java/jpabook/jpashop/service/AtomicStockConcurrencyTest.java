@@ -0,0 +1,10 @@
+package jpabook.jpashop.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 조건부 update 한 번으로 재고 차감
+ */
+@SpringBootTest(properties = "jpashop.stock.mode=ATOMIC")
+public class AtomicStockConcurrencyTest extends StockConcurrencyTest {
+}
@@ -0,0 +1,98 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CategoryServiceTest {
+
+    @Autowired
+    CategoryService categoryService;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 하위트리_상품조회() throws Exception {
+        //given 도서 > 컴퓨터 > 자바
+        Long books = categoryService.create("도서", null);
+        Long computer = categoryService.create("컴퓨터", books);
+        Long java = categoryService.create("자바", computer);
+        Long music = categoryService.create("음반", null);
+
+        Long jpa = createBook("JPA");
+        Long spring = createBook("SPRING");
+        Long album = createBook("ALBUM");
+        categoryService.addItem(java, jpa);
+        categoryService.addItem(computer, spring);
+        categoryService.addItem(java, spring); //여러 하위 카테고리에 걸친 상품
+        categoryService.addItem(music, album);
+        em.flush();
+        em.clear();
+
+        //when
+        List<Long> itemIds = ids(categoryService.findItemsInSubtree(books, 0, 10));
+
+        //then
+        assertEquals("하위 카테고리 상품까지 한 번씩만 나와야 한다.", List.of(jpa, spring), itemIds);
+        assertEquals(List.of(jpa), ids(categoryService.findItemsInSubtree(books, 0, 1)));
+        assertEquals(List.of(jpa, spring), ids(categoryService.findItemsInSubtree(java, 0, 10)));
+    }
+
+    @Test
+    public void 카테고리_이동() throws Exception {
+        //given
+        Long books = categoryService.create("도서", null);
+        Long computer = categoryService.create("컴퓨터", books);
+        Long java = categoryService.create("자바", computer);
+        Long music = categoryService.create("음반", null);
+        Long jpa = createBook("JPA");
+        categoryService.addItem(java, jpa);
+
+        //when
+        categoryService.move(computer, music);
+        em.flush();
+        em.clear();
+
+        //then
+        assertTrue("옮긴 카테고리의 자손도 새 부모 아래에서 찾아져야 한다.", ids(categoryService.findItemsInSubtree(music, 0, 10)).contains(jpa));
+        assertTrue(categoryService.findItemsInSubtree(books, 0, 10).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 하위카테고리_아래로_이동불가() throws Exception {
+        Long books = categoryService.create("도서", null);
+        Long computer = categoryService.create("컴퓨터", books);
+
+        categoryService.move(books, computer);
+
+        fail("자기 하위 카테고리 아래로 옮기면 예외가 발생해야 한다.");
+    }
+
+    private Long createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book.getId();
+    }
+
+    private List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(toList());
+    }
+}
@@ -0,0 +1,10 @@
+package jpabook.jpashop.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 변경 감지 + @Version 재시도 (jpashop.stock.mode 기본값)
+ */
+@SpringBootTest
+public class EntityStockConcurrencyTest extends StockConcurrencyTest {
+}
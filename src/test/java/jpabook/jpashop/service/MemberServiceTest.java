@@ -62,4 +62,21 @@ public class MemberServiceTest {
 
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void 이름변경_중복() throws Exception {
+        //given
+        Member member1 = new Member();
+        member1.setName("Kim");
+        Member member2 = new Member();
+        member2.setName("Lee");
+        memberService.join(member1);
+        Long id = memberService.join(member2);
+
+        //when
+        memberService.update(id, "Kim"); //unique 제약에 걸린다.
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
 }
\ No newline at end of file
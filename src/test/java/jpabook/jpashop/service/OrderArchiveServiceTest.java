@@ -0,0 +1,122 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 보관은 청크마다 트랜잭션을 따로 커밋하기 때문에 @Transactional을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderArchiveServiceTest {
+
+    @Autowired
+    OrderArchiveService orderArchiveService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 취소된_주문만_보관() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long memberId = tx.execute(status -> createMember());
+        Long itemId = tx.execute(status -> createBook());
+        Long canceled = orderService.order(memberId, itemId, 2);
+        Long ordered = orderService.order(memberId, itemId, 3);
+        orderService.cancelOrder(canceled);
+
+        //when
+        ArchiveResult result = orderArchiveService.archive();
+
+        //then
+        assertTrue(result.getOrders() >= 1);
+        assertNull("보관된 주문은 orders에 없다.", tx.execute(status -> orderRepository.findOne(canceled)));
+        assertNotNull("취소되지 않은 최근 주문은 그대로 있다.", tx.execute(status -> orderRepository.findOne(ordered)));
+
+        List<OrderQueryDto> hot = tx.execute(status -> orderQueryRepository.findAllByDto_flatTree());
+        List<OrderQueryDto> archived = tx.execute(status -> orderQueryRepository.findArchivedByDto());
+        assertFalse(contains(hot, canceled));
+        OrderQueryDto archivedOrder = archived.stream()
+                .filter(o -> o.getOrderId().equals(canceled))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertEquals("주문상품도 같이 옮겨진다.", 1, archivedOrder.getOrderItems().size());
+        assertEquals(2, archivedOrder.getOrderItems().get(0).getCount());
+    }
+
+    @Test
+    public void 한번에_최대청크수까지만() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long memberId = tx.execute(status -> createMember());
+        Long itemId = tx.execute(status -> createBook());
+        for (int i = 0; i < 3; i++) {
+            orderService.cancelOrder(orderService.order(memberId, itemId, 1));
+        }
+        ReflectionTestUtils.setField(orderArchiveService, "chunkSize", 1);
+        ReflectionTestUtils.setField(orderArchiveService, "maxChunksPerRun", 2);
+        try {
+            //when
+            ArchiveResult result = orderArchiveService.archive();
+
+            //then
+            assertEquals(2, result.getChunks());
+            assertEquals("남은 주문은 다음 실행으로 넘긴다.", 2, result.getOrders());
+        } finally {
+            ReflectionTestUtils.setField(orderArchiveService, "chunkSize", 1000);
+            ReflectionTestUtils.setField(orderArchiveService, "maxChunksPerRun", 100);
+        }
+        orderArchiveService.archive(); //남은 취소 주문 정리
+    }
+
+    private boolean contains(List<OrderQueryDto> orders, Long orderId) {
+        return orders.stream().anyMatch(o -> o.getOrderId().equals(orderId));
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("보관회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        em.persist(member);
+        return member.getId();
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("보관 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book.getId();
+    }
+}
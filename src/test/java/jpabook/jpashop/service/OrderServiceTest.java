@@ -1,6 +1,7 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
@@ -13,10 +14,17 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 @RunWith(SpringRunner.class)
@@ -33,6 +41,9 @@ public class OrderServiceTest {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Test
     public void 상품주문() throws Exception {
 
@@ -52,6 +63,7 @@ public class OrderServiceTest {
         assertEquals("상품 주문시 상태는 ORDER", OrderStatus.ORDER,getOrder.getStatus());
         assertEquals("주문한 상품 종류 수가 정확해야 한다.",1,getOrder.getOrderItems().size());
         assertEquals("주문 가격은 가격 * 수량이다.",10000*orderCount,getOrder.getTotalPrice());
+        assertEquals("주문 수량이 주문에 같이 저장되어야 한다.",orderCount,getOrder.getItemCount());
         assertEquals("주문 수량만큼 재고가 줄어야 한다.",8,book.getStockQuantity());
     }
 
@@ -76,6 +88,59 @@ public class OrderServiceTest {
         assertEquals("주문이 추소된 상품은 그만큼 재고가 증가해야 한다.",10,item.getStockQuantity());
     }
 
+    @Test
+    public void 대량주문취소() throws Exception {
+        //given
+        Member member = createMember();
+        Book item = createBook("시골 JPA", 10000, 10);
+
+        Long first = orderService.order(member.getId(), item.getId(), 2);
+        Long second = orderService.order(member.getId(), item.getId(), 3);
+        Long delivered = orderService.order(member.getId(), item.getId(), 4);
+        orderRepository.findOne(delivered).getDelivery().setStatus(DeliveryStatus.COMP);
+
+        //when
+        BulkCancelResult result = orderService.cancelOrders(Arrays.asList(first, second, delivered, first));
+        em.clear(); //bulk update는 영속성 컨텍스트를 거치지 않는다.
+
+        //then
+        assertEquals("중복 id는 한 번만 센다.", 3, result.getRequestedCount());
+        assertEquals(2, result.getCanceledCount());
+        assertEquals(Collections.singletonList(delivered), result.getSkippedOrderIds());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(first).getStatus());
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(delivered).getStatus());
+        assertEquals("취소된 수량만큼만 재고가 돌아와야 한다.", 6, em.find(Book.class, item.getId()).getStockQuantity());
+    }
+
+    //orderBulk는 청크마다 자기 트랜잭션을 쓰기 때문에 회원/상품을 먼저 커밋해 둔다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 대량주문_수량검증() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long memberId = tx.execute(status -> {
+            Member member = new Member();
+            member.setName("대량주문회원" + System.nanoTime());
+            member.setAddress(new Address("서울","경기","123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+        Long itemId = tx.execute(status -> createBook("시골 JPA", 10000, 10).getId());
+
+        //when
+        List<BulkOrderResult> results = orderService.orderBulk(Arrays.asList(
+                bulkOrder(memberId, itemId, 2),
+                bulkOrder(memberId, itemId, -50),
+                bulkOrder(memberId, itemId, 0)));
+
+        //then
+        assertTrue(results.get(0).isSuccess());
+        assertFalse("음수 수량은 실패해야 한다.", results.get(1).isSuccess());
+        assertFalse("수량 0은 실패해야 한다.", results.get(2).isSuccess());
+        assertEquals("정상 주문 수량만큼만 재고가 줄어야 한다.", 8,
+                (int) tx.execute(status -> em.find(Book.class, itemId).getStockQuantity()));
+    }
+
       @Test(expected = NotEnoughStockException.class)
       public void 상품주문_재고수량초과() throws Exception {
           //given
@@ -89,6 +154,16 @@ public class OrderServiceTest {
           fail("재고 수량 부족 예외가 발생해야 한다.");
        }
 
+    private BulkOrderRequest bulkOrder(Long memberId, Long itemId, int count) {
+        BulkOrderRequest.Line line = new BulkOrderRequest.Line();
+        line.setItemId(itemId);
+        line.setCount(count);
+        BulkOrderRequest request = new BulkOrderRequest();
+        request.setMemberId(memberId);
+        request.getLines().add(line);
+        return request;
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
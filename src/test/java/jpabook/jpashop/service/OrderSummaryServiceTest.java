@@ -0,0 +1,169 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.OrderSort;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryConsistency;
+import jpabook.jpashop.repository.order.simplequery.OrderSummaryRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * 주문 요약(order_summary). 주문/취소가 커밋된 요약을 봐야 하니까 @Transactional 없이 실제로 커밋한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSummaryServiceTest {
+
+    @Autowired
+    OrderSummaryService orderSummaryService;
+
+    @Autowired
+    OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private String memberName;
+    private Long memberId;
+    private Long itemId;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        orderSummaryService.rebuild(); //다른 테스트가 SQL로 직접 바꾼 주문
+
+        memberName = "요약회원" + System.nanoTime();
+        Member member = new Member();
+        member.setName(memberName);
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        memberId = memberService.join(member);
+        itemId = createBook();
+    }
+
+    @Test
+    public void 검색() throws Exception {
+        Long small = orderService.order(memberId, itemId, 1); //10000
+        Long canceled = orderService.order(memberId, itemId, 2); //20000
+        Long large = orderService.order(memberId, itemId, 3); //30000
+        orderService.cancelOrder(canceled);
+
+        OrderSearch byName = new OrderSearch();
+        byName.setMemberName(memberName);
+        byName.setSort(OrderSort.TOTAL_PRICE_DESC);
+        assertEquals(List.of(large, canceled, small), search(byName, 100));
+        assertEquals("limit만큼만", List.of(large), search(byName, 1));
+
+        OrderSearch ordered = new OrderSearch();
+        ordered.setMemberName(memberName);
+        ordered.setOrderStatus(OrderStatus.ORDER);
+        ordered.setMinTotalPrice(15000);
+        assertEquals(List.of(large), search(ordered, 100));
+
+        OrderSearch cancel = new OrderSearch();
+        cancel.setMemberName(memberName);
+        cancel.setOrderStatus(OrderStatus.CANCEL);
+        assertEquals(List.of(canceled), search(cancel, 100));
+    }
+
+    @Test
+    public void 어긋난_요약을_찾아서_고친다() throws Exception {
+        Long missing = orderService.order(memberId, itemId, 1);
+        Long mismatched = orderService.order(memberId, itemId, 1);
+        jdbcTemplate.update("delete from order_summary where order_id = ?", missing);
+        jdbcTemplate.update("update order_summary set member_name = '틀린이름' where order_id = ?", mismatched);
+        jdbcTemplate.update("insert into order_summary (order_id, member_id, member_name, status, order_date, total_price)" +
+                " values (-1, ?, ?, 'ORDER', current_timestamp, 0)", memberId, memberName);
+
+        OrderSummaryConsistency before = orderSummaryService.checkConsistency();
+        assertFalse(before.isConsistent());
+        assertEquals(1, before.getMissingCount());
+        assertEquals(1, before.getMismatchCount());
+        assertEquals(1, before.getOrphanCount());
+        assertTrue(before.getSampleOrderIds().containsAll(List.of(missing, mismatched, -1L)));
+
+        assertEquals("어긋난 3건만 고친다.", 3, orderSummaryService.rebuild());
+
+        OrderSummaryConsistency after = orderSummaryService.checkConsistency();
+        assertTrue(after.isConsistent());
+        assertEquals(after.getSourceCount(), after.getSummaryCount());
+        assertNull(after.getSampleOrderIds());
+    }
+
+    @Test
+    public void 주문이_들어오는_중에도_다시만든다() throws Exception {
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Long threadItemId = t == 0 ? itemId : createBook(); //같은 상품이면 @Version 충돌이 난다.
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    orderService.order(memberId, threadItemId, 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < 10; i++) {
+            orderSummaryService.rebuild(); //order_id가 겹쳐서 깨지면 여기서 예외
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertTrue(orderSummaryService.checkConsistency().isConsistent());
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("요약 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(1000);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private List<Long> search(OrderSearch orderSearch, int limit) {
+        return tx.execute(status -> orderSummaryRepository.search(orderSearch, limit).stream()
+                .map(OrderSimpleQueryDto::getOrderId)
+                .collect(toList()));
+    }
+}
@@ -0,0 +1,104 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 같은 상품에 여러 스레드가 동시에 주문해도 재고가 음수가 되거나(oversell) 주문된 수량과 어긋나지 않는지 확인한다.
+ * 재고 차감 방식(jpashop.stock.mode)마다 컨텍스트를 따로 띄워야 하니까 모드별 하위 클래스에서 @SpringBootTest로 정한다.
+ * 처리량 비교는 StockContentionBenchmark (src/jmh)
+ * 트랜잭션을 실제로 커밋해야 하기 때문에 @Transactional을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+public abstract class StockConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 50;
+    private static final int STOCK = 200; //주문 시도(400건)보다 적게 잡아서 품절까지 가게 한다.
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OptimisticLockRetry optimisticLockRetry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 동시주문_재고차감() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long memberId = tx.execute(status -> createMember());
+        Long itemId = tx.execute(status -> createBook(STOCK));
+
+        AtomicInteger success = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        optimisticLockRetry.execute(() -> orderService.order(memberId, itemId, 1));
+                        success.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        //품절, 재시도 횟수 초과, 락 타임아웃 등. 롤백됐으니 재고도 그대로다.
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        int stock = tx.execute(status -> em.find(Item.class, itemId).getStockQuantity());
+
+        assertEquals("주문된 수량만큼만 재고가 줄어야 한다.", STOCK - success.get(), stock);
+        assertTrue("재고는 음수가 될 수 없다.", stock >= 0);
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("동시주문회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        em.persist(member);
+        return member.getId();
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("동시주문 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book.getId();
+    }
+}
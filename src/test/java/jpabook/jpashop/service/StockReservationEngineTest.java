@@ -0,0 +1,219 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockDeltaRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * ENGINE 모드의 메모리 재고. 커밋/롤백에 따라 카운터가 움직이는 걸 봐야 하니까 @Transactional 없이 실제로 커밋한다.
+ * 스케줄된 flush가 저널을 먼저 가져가지 않도록 주기를 길게 잡는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.stock.mode=ENGINE",
+        "jpashop.stock.engine.flush-interval-ms=3600000"})
+public class StockReservationEngineTest {
+
+    @Autowired
+    StockReservationEngine engine;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    ItemStockDeltaRepository itemStockDeltaRepository;
+
+    @Autowired
+    AggregateVersions aggregateVersions;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManager em;
+
+    private TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        engine.flush(); //다른 테스트가 남긴 저널
+    }
+
+    @Test
+    public void 동시예약_초과판매없음() throws Exception {
+        Long itemId = createBook(100);
+        int threads = 8;
+        AtomicInteger success = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 30; i++) {
+                    try {
+                        tx.execute(status -> {
+                            engine.reserve(itemId, 1);
+                            return null;
+                        });
+                        success.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        //품절
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals("재고만큼만 예약된다.", 100, success.get());
+        engine.flush();
+        assertEquals(0, stockQuantity(itemId));
+    }
+
+    @Test
+    public void 롤백되면_카운터도_되돌린다() throws Exception {
+        Long itemId = createBook(5);
+
+        tx.execute(status -> {
+            engine.reserve(itemId, 3);
+            status.setRollbackOnly();
+            return null;
+        });
+        try {
+            tx.execute(status -> {
+                engine.reserve(itemId, 4);
+                throw new IllegalStateException("주문 실패");
+            });
+            fail("예외가 나야 한다.");
+        } catch (IllegalStateException e) {
+            //롤백
+        }
+
+        reserve(itemId, 5); //롤백된 예약이 남아 있으면 품절이다.
+        assertEquals("롤백된 예약은 저널에도 없다.", 1, journalRows(itemId));
+    }
+
+    @Test
+    public void 복구는_커밋된뒤에_반영() throws Exception {
+        Long itemId = createBook(5);
+        reserve(itemId, 5);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        tx.execute(status -> {
+            engine.release(itemId, 5);
+            //아직 커밋 전이라 다른 트랜잭션은 복구된 재고를 가져갈 수 없다.
+            Future<?> other = pool.submit(() -> reserve(itemId, 1));
+            try {
+                other.get();
+                fail("커밋 전에는 품절이어야 한다.");
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof NotEnoughStockException);
+            }
+            return null;
+        });
+        pool.shutdown();
+
+        reserve(itemId, 5); //커밋 후에는 다시 5개
+    }
+
+    @Test
+    public void 저널을_합쳐서_반영하고_지운다() throws Exception {
+        Long itemId = createBook(10);
+        reserve(itemId, 2);
+        reserve(itemId, 3);
+        tx.execute(status -> {
+            engine.release(itemId, 1);
+            return null;
+        });
+        assertEquals(3, journalRows(itemId));
+        assertEquals("flush 전에는 item 재고가 그대로다.", 10, stockQuantity(itemId));
+
+        engine.flush();
+
+        assertEquals(10 - 2 - 3 + 1, stockQuantity(itemId));
+        assertEquals(0, journalRows(itemId));
+    }
+
+    @Test
+    public void 재시작하면_재고와_저널로_다시채운다() throws Exception {
+        Long itemId = createBook(10);
+        reserve(itemId, 4); //item에는 아직 반영 안 됨
+
+        //카운터가 비어 있는 새 엔진 = 재시작
+        StockReservationEngine restarted = new StockReservationEngine(
+                itemRepository, itemStockDeltaRepository, transactionManager, aggregateVersions);
+        ReflectionTestUtils.setField(restarted, "stockMode", StockMode.ENGINE);
+
+        tx.execute(status -> {
+            restarted.reserve(itemId, 6);
+            return null;
+        });
+        try {
+            tx.execute(status -> {
+                restarted.reserve(itemId, 1);
+                return null;
+            });
+            fail("item 10 + 저널 -4 -6 = 0이라 품절이어야 한다.");
+        } catch (NotEnoughStockException e) {
+            //품절
+        }
+    }
+
+    private void reserve(Long itemId, int count) {
+        tx.execute(status -> {
+            engine.reserve(itemId, count);
+            return null;
+        });
+    }
+
+    private Long createBook(int stockQuantity) {
+        return tx.execute(status -> {
+            Book book = new Book();
+            book.setName("재고엔진 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    private int stockQuantity(Long itemId) {
+        return jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+    }
+
+    private int journalRows(Long itemId) {
+        return jdbcTemplate.queryForObject("select count(*) from item_stock_delta where item_id = ?", Integer.class, itemId);
+    }
+}